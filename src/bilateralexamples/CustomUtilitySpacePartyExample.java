@@ -1,6 +1,8 @@
 package bilateralexamples;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import genius.core.Bid;
 import genius.core.Domain;
@@ -15,6 +17,8 @@ import genius.core.uncertainty.BidRanking;
 import genius.core.uncertainty.ExperimentalUserModel;
 import genius.core.utility.AbstractUtilitySpace;
 import genius.core.utility.CustomUtilitySpace;
+import group13.BidCodec;
+import group13.SimilarityIndex;
 
 /**
  * Example of a party that deals with preference uncertainty by defining a custom UtilitySpace 
@@ -131,49 +135,79 @@ public class CustomUtilitySpacePartyExample extends AbstractNegotiationParty
 	 */
 	private class ClosestKnownBid extends CustomUtilitySpace
 	{
+		/** Number of utilities kept in the cache */
+		private static final int CACHE_SIZE = 4096;
+		/** Encoding of bids as value indices */
+		private final BidCodec codec;
+		/** Index of the ranked bids by their values, built on first use */
+		private SimilarityIndex index;
+		/** Least recently used cache of utilities of packed bids */
+		private final Map<Long, Double> cache = new LinkedHashMap<Long, Double>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Double> eldest)
+			{
+				return size() > CACHE_SIZE;
+			}
+		};
 
 		public ClosestKnownBid(Domain dom) {
 			super(dom);
+			codec = new BidCodec(dom);
 		}
 
 		@Override
 		public double getUtility(Bid bid) 
 		{
-			Bid closestRankedBid = getClosestBidRanked(bid);
-			return estimateUtilityOfRankedBid(closestRankedBid);
+			if (!codec.isPackable())
+				return estimateUtilityOfRank(getIndex().getClosestRank(bid));
+			long key = codec.pack(bid);
+			Double utility = cache.get(key);
+			if (utility == null)
+			{
+				utility = estimateUtilityOfRank(getIndex().getClosestRank(bid));
+				cache.put(key, utility);
+			}
+			return utility;
 		}
 		
 		public double estimateUtilityOfRankedBid(Bid b)
+		{
+			return estimateUtilityOfRank(getUserModel().getBidRanking().indexOf(b));
+		}
+		
+		/**
+		 * Estimates the utility of the bid at the given index of the bid ranking.
+		 * A negative index means no ranked bid is similar, which gets the middle of the utility range.
+		 */
+		private double estimateUtilityOfRank(int i)
 		{
 			BidRanking bidRanking = getUserModel().getBidRanking();
-			Double min = bidRanking.getLowUtility();
+			double min = bidRanking.getLowUtility();
 			double max = bidRanking.getHighUtility();
 			
-			int i = bidRanking.indexOf(b);
+			if (i < 0)
+				return (min + max) / 2;
 			
 			// index:0 has utility min, index n-1 has utility max
 			return min + i * (max - min) / (double) bidRanking.getSize();
 		}
 		
 		/**
-		 * Finds the bid in the bid ranking that is most similar to bid given in the argument bid
+		 * Finds the bid in the bid ranking that is most similar to bid given in the argument bid,
+		 * or null if no ranked bid shares a value with it
 		 */
 		public Bid getClosestBidRanked(Bid bid)
 		{
-			List<Bid> bidOrder = getUserModel().getBidRanking().getBidOrder();
-			Bid closestBid = null;
-			double closestDistance = Double.MAX_VALUE;
-				
-			for (Bid b : bidOrder)
-			{
-				double d = 1 / (double) b.countEqualValues(bid);
-				if (d < closestDistance)
-				{
-					closestDistance = d;
-					closestBid = b;
-				}
-			}
-			return closestBid;
+			int rank = getIndex().getClosestRank(bid);
+			return rank < 0 ? null : getUserModel().getBidRanking().getBidOrder().get(rank);
+		}
+		
+		private SimilarityIndex getIndex()
+		{
+			if (index == null)
+				index = new SimilarityIndex(codec, getUserModel().getBidRanking().getBidOrder());
+			return index;
 		}
 		
 	}
@@ -1,11 +1,10 @@
 package bilateralexamples.boacomponents;
 
-import java.util.List;
-
 import genius.core.Bid;
 import genius.core.boaframework.AcceptanceStrategy;
 import genius.core.boaframework.Actions;
 import genius.core.uncertainty.UserModel;
+import group13.BidRankIndex;
 
 /**
  * Accepts:
@@ -19,6 +18,9 @@ import genius.core.uncertainty.UserModel;
  */
 public class AC_Uncertain extends AcceptanceStrategy {
 
+	/** Rank of each bid in the user model, built once per user model */
+	private BidRankIndex rankIndex;
+
 	@Override
 	public Actions determineAcceptability() {
 		Bid receivedBid = negotiationSession.getOpponentBidHistory()
@@ -30,14 +32,11 @@ public class AC_Uncertain extends AcceptanceStrategy {
 
 		UserModel userModel = negotiationSession.getUserModel();
 		if (userModel != null) {
-			List<Bid> bidOrder = userModel.getBidRanking().getBidOrder();
-			if (bidOrder.contains(receivedBid)) {
-				double percentile = (bidOrder.size()
-						- bidOrder.indexOf(receivedBid))
-						/ (double) bidOrder.size();
-				if (percentile < 0.1)
-					return Actions.Accept;
-			}
+			rankIndex = BidRankIndex.of(rankIndex, userModel);
+			// percentile is NaN if the rank of the received bid is unknown
+			double percentile = rankIndex.getPercentile(receivedBid);
+			if (percentile < 0.1)
+				return Actions.Accept;
 		} else {
 			// we have a normal utilityspace
 			double otherLastUtil = negotiationSession.getUtilitySpace()
@@ -0,0 +1,160 @@
+package group13;
+
+import genius.core.Bid;
+import genius.core.issue.IssueDiscrete;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.EvaluatorDiscrete;
+
+/**
+ * Candidate bids of agent NiceHardHeaded of group 13 of Multi-Agent Systems project stored as a matrix of value indices,
+ * one row per issue and one column per candidate, to score many candidates at once.
+ * An additive utility is scored one issue at a time: a table lookup and an add over a contiguous row for every candidate,
+ * instead of walking the issues of every bid through the utility space or opponent model.
+ *
+ * There is no jdk.incubator.vector path. The agent is compiled for Java 8 and loaded by the JVM that runs Genius,
+ * while the incubator module needs JDK 16 or later and --add-modules on that JVM, so a class using it would not even load.
+ * The inner loop is a gather from the table and an add, which HotSpot unrolls, and a vector gather would only pay off on AVX-512.
+ */
+public class BatchScorer {
+
+	// Encoding of the bids of the domain
+	private final BidCodec codec;
+	// Number of issues
+	private final int issueCount;
+	// Value index of each candidate, one row per issue
+	private int[][] values;
+	// Number of candidates
+	private int size;
+	// Whether values is shared with another owner, so it is copied before it is written
+	private boolean shared;
+
+	/**
+	 * @param codec: encoding of the bids of the domain.
+	 * @param capacity: number of candidates to allocate room for, grows when needed.
+	 */
+	public BatchScorer(BidCodec codec, int capacity) {
+		this.codec = codec;
+		this.issueCount = codec.getIssueCount();
+		this.values = new int[issueCount][Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Candidates already encoded, like the bids of an {@link OutcomeIndex}. The matrix is shared, not copied.
+	 *
+	 * @param codec: encoding of the bids of the domain.
+	 * @param values: value index of each candidate, one row per issue.
+	 * @param size: number of candidates, the length of each row.
+	 */
+	public BatchScorer(BidCodec codec, int[][] values, int size) {
+		this.codec = codec;
+		this.issueCount = codec.getIssueCount();
+		this.values = values;
+		this.size = size;
+		this.shared = true;
+	}
+
+	/**
+	 * Remove all candidates, keeping the allocated room.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Add a candidate as the next column.
+	 */
+	public void add(Bid bid) {
+		grow();
+		for (int i = 0; i < issueCount; i++) {
+			values[i][size] = codec.getValueIndex(bid, i);
+		}
+		size++;
+	}
+
+	/**
+	 * Add a candidate that is already encoded as the next column, copied from a column of another value index matrix.
+	 *
+	 * @param encoded: value index matrix with one row per issue, like {@link OutcomeIndex#getValues()}.
+	 * @param column: column of the candidate in that matrix.
+	 */
+	public void add(int[][] encoded, int column) {
+		grow();
+		for (int i = 0; i < issueCount; i++) {
+			values[i][size] = encoded[i][column];
+		}
+		size++;
+	}
+
+	/**
+	 * Make room for one more candidate, copying a shared matrix first so that it is never modified.
+	 */
+	private void grow() {
+		if (issueCount == 0 || (!shared && size < values[0].length)) {
+			return;
+		}
+		int[][] grown = new int[issueCount][];
+		for (int i = 0; i < issueCount; i++) {
+			grown[i] = new int[Math.max(size * 2, 1)];
+			System.arraycopy(values[i], 0, grown[i], 0, size);
+		}
+		values = grown;
+		shared = false;
+	}
+
+	/**
+	 * @return number of candidates
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Score all candidates with an additive utility.
+	 *
+	 * @param table: utility of each value of each issue, already multiplied by the weight of the issue.
+	 * @param utilities: array to store the utility of each candidate, at least as long as the number of candidates.
+	 */
+	public void score(double[][] table, double[] utilities) {
+		score(table, utilities, 0, size);
+	}
+
+	/**
+	 * Score the candidates from position from up to position to with an additive utility.
+	 *
+	 * @param table: utility of each value of each issue, already multiplied by the weight of the issue.
+	 * @param utilities: array to store the utility of each candidate at its position, at least as long as to.
+	 */
+	public void score(double[][] table, double[] utilities, int from, int to) {
+		for (int c = from; c < to; c++) {
+			utilities[c] = 0;
+		}
+		for (int i = 0; i < issueCount; i++) {
+			double[] utility = table[i];
+			int[] row = values[i];
+			for (int c = from; c < to; c++) {
+				utilities[c] += utility[row[c]];
+			}
+		}
+	}
+
+	/**
+	 * @return utility of each value of each issue in our own utility space, multiplied by the weight of the issue
+	 */
+	public static double[][] getUtilityTable(AdditiveUtilitySpace utilitySpace, BidCodec codec) {
+		double[][] table = new double[codec.getIssueCount()][];
+		for (int i = 0; i < table.length; i++) {
+			IssueDiscrete issue = codec.getIssue(i);
+			EvaluatorDiscrete evaluator = (EvaluatorDiscrete) utilitySpace.getEvaluator(issue.getNumber());
+			double weight = utilitySpace.getWeight(issue.getNumber());
+			table[i] = new double[issue.getNumberOfValues()];
+			for (int v = 0; v < table[i].length; v++) {
+				try {
+					table[i][v] = weight * evaluator.getEvaluation(issue.getValue(v));
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return table;
+	}
+}
@@ -0,0 +1,188 @@
+package group13;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Value;
+
+/**
+ * Dense integer encoding of the bids of a domain, shared by the components of agent NiceHardHeaded of group 13 of Multi-Agent Systems project.
+ * A bid is encoded as the index of its value for each issue, in the order of domain.getIssues(),
+ * so comparing and evaluating bids works on int[] instead of maps of Value objects.
+ * If the number of possible bids fits in a long, a bid can also be packed into one long,
+ * with the first issue as most significant digit.
+ * Only domains whose issues are all discrete can be encoded, see {@link #isDiscrete(Domain)}.
+ */
+public class BidCodec {
+
+	// Domain of the bids
+	private final Domain domain;
+	// Discrete issues of the domain
+	private final IssueDiscrete[] issues;
+	// Index of each value of each issue
+	private final List<Map<Value, Integer>> valueIndices;
+	// Whether every bid can be packed into a long
+	private final boolean packable;
+
+	/**
+	 * @throws IllegalArgumentException if some issue of the domain is not discrete
+	 */
+	public BidCodec(Domain domain) {
+		if (!isDiscrete(domain)) {
+			throw new IllegalArgumentException("Domain " + domain.getName() + " has an issue which is not discrete");
+		}
+		this.domain = domain;
+		List<Issue> domainIssues = domain.getIssues();
+		this.issues = new IssueDiscrete[domainIssues.size()];
+		this.valueIndices = new ArrayList<Map<Value, Integer>>(issues.length);
+		long outcomes = 1;
+		boolean fits = true;
+		for (int i = 0; i < issues.length; i++) {
+			issues[i] = (IssueDiscrete) domainIssues.get(i);
+			Map<Value, Integer> indices = new HashMap<Value, Integer>();
+			for (int v = 0; v < issues[i].getNumberOfValues(); v++) {
+				indices.put(issues[i].getValue(v), v);
+			}
+			valueIndices.add(indices);
+			if (fits && outcomes > Long.MAX_VALUE / issues[i].getNumberOfValues()) {
+				fits = false;
+			}
+			outcomes *= issues[i].getNumberOfValues();
+		}
+		this.packable = fits;
+	}
+
+	/**
+	 * @return true if every issue of the domain is discrete, so that its bids can be encoded
+	 */
+	public static boolean isDiscrete(Domain domain) {
+		for (Issue issue : domain.getIssues()) {
+			if (!(issue instanceof IssueDiscrete)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public Domain getDomain() {
+		return domain;
+	}
+
+	public int getIssueCount() {
+		return issues.length;
+	}
+
+	public IssueDiscrete getIssue(int issue) {
+		return issues[issue];
+	}
+
+	/**
+	 * @return number of values of the issue at given position
+	 */
+	public int getValueCount(int issue) {
+		return issues[issue].getNumberOfValues();
+	}
+
+	/**
+	 * @return index of the value of the bid for the issue at given position
+	 */
+	public int getValueIndex(Bid bid, int issue) {
+		return valueIndices.get(issue).get(bid.getValue(issues[issue].getNumber()));
+	}
+
+	/**
+	 * Store the value index of each issue of the bid in the given array.
+	 */
+	public void encode(Bid bid, int[] values) {
+		for (int i = 0; i < issues.length; i++) {
+			values[i] = getValueIndex(bid, i);
+		}
+	}
+
+	/**
+	 * @return value index of each issue of the bid
+	 */
+	public int[] encode(Bid bid) {
+		int[] values = new int[issues.length];
+		encode(bid, values);
+		return values;
+	}
+
+	/**
+	 * @return true if every bid of the domain can be packed into a long
+	 */
+	public boolean isPackable() {
+		return packable;
+	}
+
+	/**
+	 * Pack the bid into one long. Only meaningful if {@link #isPackable()}.
+	 */
+	public long pack(Bid bid) {
+		long key = 0;
+		for (int i = 0; i < issues.length; i++) {
+			key = key * issues[i].getNumberOfValues() + getValueIndex(bid, i);
+		}
+		return key;
+	}
+
+	/**
+	 * Pack encoded values into one long. Only meaningful if {@link #isPackable()}.
+	 */
+	public long pack(int[] values) {
+		long key = 0;
+		for (int i = 0; i < issues.length; i++) {
+			key = key * issues[i].getNumberOfValues() + values[i];
+		}
+		return key;
+	}
+
+	/**
+	 * Unpack a long into the value index of each issue.
+	 */
+	public void unpack(long key, int[] values) {
+		for (int i = issues.length - 1; i >= 0; i--) {
+			values[i] = (int) (key % issues[i].getNumberOfValues());
+			key /= issues[i].getNumberOfValues();
+		}
+	}
+
+	/**
+	 * Create the bid with the given value index for each issue.
+	 */
+	public Bid decode(int[] values) {
+		HashMap<Integer, Value> bidValues = new HashMap<Integer, Value>();
+		for (int i = 0; i < issues.length; i++) {
+			bidValues.put(issues[i].getNumber(), issues[i].getValue(values[i]));
+		}
+		return new Bid(domain, bidValues);
+	}
+
+	/**
+	 * Create the bid packed into the given long.
+	 */
+	public Bid decode(long key) {
+		int[] values = new int[issues.length];
+		unpack(key, values);
+		return decode(values);
+	}
+
+	/**
+	 * @return number of issues for which two encoded bids have the same value
+	 */
+	public static int countEqualValues(int[] first, int[] second) {
+		int equal = 0;
+		for (int i = 0; i < first.length; i++) {
+			if (first[i] == second[i]) {
+				equal++;
+			}
+		}
+		return equal;
+	}
+}
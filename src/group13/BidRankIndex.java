@@ -0,0 +1,99 @@
+package group13;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import genius.core.Bid;
+import genius.core.uncertainty.UserModel;
+
+/**
+ * Rank of each bid in the bid ranking of a user model, used under preference uncertainty.
+ * The ranking is hashed once per user model, keyed by the bid packed into one long by {@link BidCodec},
+ * or by the bid itself if the domain is too large to pack a bid into a long,
+ * so looking up the rank of a bid takes constant time instead of a search through the ranking.
+ * Rank 0 is the worst bid and rank size - 1 the best bid, the same as the order of the ranking.
+ */
+public class BidRankIndex {
+
+	// User model which the index is built from
+	private final UserModel userModel;
+	// Encoding of the bids of the domain
+	private final BidCodec codec;
+	// Rank of each ranked bid, keyed by its packed value indices, or by the bid if bids cannot be packed
+	private final Map<Object, Integer> ranks;
+	// Number of bids in the ranking
+	private final int size;
+
+	/**
+	 * Build the index from the bid ranking of the given user model.
+	 */
+	public BidRankIndex(UserModel userModel) {
+		this.userModel = userModel;
+		this.codec = new BidCodec(userModel.getDomain());
+		List<Bid> bidOrder = userModel.getBidRanking().getBidOrder();
+		this.size = bidOrder.size();
+		this.ranks = new HashMap<Object, Integer>(size * 2);
+		for (int rank = 0; rank < size; rank++) {
+			// Keep the first rank of a bid, like BidRanking.indexOf
+			Object key = key(bidOrder.get(rank));
+			if (!ranks.containsKey(key)) {
+				ranks.put(key, rank);
+			}
+		}
+	}
+
+	/**
+	 * Return an index for the given user model, reusing the given index if it is built from the same user model.
+	 *
+	 * @param index: index built earlier, may be null.
+	 * @param userModel: current user model.
+	 * @return index of the current user model
+	 */
+	public static BidRankIndex of(BidRankIndex index, UserModel userModel) {
+		if (index != null && index.userModel == userModel) {
+			return index;
+		}
+		return new BidRankIndex(userModel);
+	}
+
+	/**
+	 * @return rank of the bid, or -1 if it is not in the ranking
+	 */
+	public int getRank(Bid bid) {
+		Integer rank = ranks.get(key(bid));
+		return rank == null ? -1 : rank;
+	}
+
+	/**
+	 * @return key of the bid in the index
+	 */
+	private Object key(Bid bid) {
+		return codec.isPackable() ? (Object) codec.pack(bid) : bid;
+	}
+
+	/**
+	 * @return true if the bid is in the ranking
+	 */
+	public boolean contains(Bid bid) {
+		return getRank(bid) >= 0;
+	}
+
+	/**
+	 * Return the fraction of the ranking that is as good as or better than the bid,
+	 * so the best bid has percentile 1 / size and the worst bid has percentile 1.
+	 *
+	 * @return percentile of the bid, or NaN if it is not in the ranking
+	 */
+	public double getPercentile(Bid bid) {
+		int rank = getRank(bid);
+		return rank < 0 ? Double.NaN : (size - rank) / (double) size;
+	}
+
+	/**
+	 * @return number of bids in the ranking
+	 */
+	public int size() {
+		return size;
+	}
+}
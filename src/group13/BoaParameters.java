@@ -0,0 +1,27 @@
+package group13;
+
+import java.util.Map;
+
+/**
+ * Reading of the BOA parameters of the components of agent NiceHardHeaded of group 13 of Multi-Agent Systems project.
+ * Parameters are set per component in boapartyrepo.xml, or by the tournament runner and parameter sweep,
+ * and a component without the parameter, like the ones configured by Group13_NiceHardHead, uses the default of its parameter spec.
+ */
+public final class BoaParameters {
+
+	private BoaParameters() {
+	}
+
+	/**
+	 * @param parameters: parameters given to the component, may be null.
+	 * @param name: name of the parameter.
+	 * @param defaultValue: value if the parameter is not given.
+	 * @return value of the parameter
+	 */
+	public static double get(Map<String, Double> parameters, String name, double defaultValue) {
+		if (parameters == null || parameters.get(name) == null) {
+			return defaultValue;
+		}
+		return parameters.get(name).doubleValue();
+	}
+}
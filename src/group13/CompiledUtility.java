@@ -0,0 +1,106 @@
+package group13;
+
+import genius.core.Bid;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.EvaluatorDiscrete;
+
+/**
+ * Our own additive utility space of agent NiceHardHeaded of group 13 of Multi-Agent Systems project, flattened at init
+ * into the weight times the evaluation of each value of each issue.
+ * The utility of an encoded bid is then a sum of one table entry per issue, without the maps from issue and value objects
+ * to evaluators and evaluations Genius goes through for each bid.
+ * Discount factor and reservation value are copied from the utility space and applied the same way Genius does.
+ */
+public class CompiledUtility {
+
+	// Encoding of the bids of the domain
+	private final BidCodec codec;
+	// Weighted evaluation of each value of each issue
+	private final double[][] table;
+	// Discount factor, no discount unless strictly between 0 and 1
+	private final double discountFactor;
+	// Utility when no agreement is reached, undiscounted
+	private final double reservationValue;
+	// Encoded bid, reused between calls
+	private final int[] values;
+
+	public CompiledUtility(AdditiveUtilitySpace utilitySpace, BidCodec codec) {
+		this.codec = codec;
+		this.table = BatchScorer.getUtilityTable(utilitySpace, codec);
+		this.discountFactor = utilitySpace.getDiscountFactor();
+		Double reservation = utilitySpace.getReservationValueUndiscounted();
+		this.reservationValue = reservation == null ? 0 : reservation.doubleValue();
+		this.values = new int[codec.getIssueCount()];
+	}
+
+	/**
+	 * @return the compiled utility space, or null if the utility space is not additive or some issue has no discrete evaluator
+	 */
+	public static CompiledUtility of(AbstractUtilitySpace utilitySpace, BidCodec codec) {
+		if (!(utilitySpace instanceof AdditiveUtilitySpace)) {
+			return null;
+		}
+		AdditiveUtilitySpace additive = (AdditiveUtilitySpace) utilitySpace;
+		for (int i = 0; i < codec.getIssueCount(); i++) {
+			if (!(additive.getEvaluator(codec.getIssue(i).getNumber()) instanceof EvaluatorDiscrete)) {
+				return null;
+			}
+		}
+		return new CompiledUtility(additive, codec);
+	}
+
+	/**
+	 * @return undiscounted utility of the encoded bid
+	 */
+	public double getUtility(int[] values) {
+		double utility = 0;
+		for (int i = 0; i < table.length; i++) {
+			utility += table[i][values[i]];
+		}
+		return utility;
+	}
+
+	/**
+	 * @return undiscounted utility of the bid. Not thread-safe, since the bid is encoded into a shared array
+	 */
+	public double getUtility(Bid bid) {
+		codec.encode(bid, values);
+		return getUtility(values);
+	}
+
+	/**
+	 * @return utility of the encoded bid discounted to the given normalized time
+	 */
+	public double getUtilityWithDiscount(int[] values, double time) {
+		return discount(getUtility(values), time);
+	}
+
+	/**
+	 * @return reservation value, undiscounted
+	 */
+	public double getReservationValue() {
+		return reservationValue;
+	}
+
+	/**
+	 * @return reservation value discounted to the given normalized time
+	 */
+	public double getReservationValueWithDiscount(double time) {
+		return discount(reservationValue, time);
+	}
+
+	/**
+	 * @return utility discounted to the given normalized time, unchanged if the discount factor is not strictly between 0 and 1
+	 */
+	public double discount(double utility, double time) {
+		if (discountFactor <= 0 || discountFactor >= 1) {
+			return utility;
+		}
+		return utility * Math.pow(discountFactor, Math.max(0, Math.min(1, time)));
+	}
+
+	public BidCodec getCodec() {
+		return codec;
+	}
+}
@@ -0,0 +1,175 @@
+package group13;
+
+import java.util.List;
+
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.boaframework.OpponentModel;
+
+/**
+ * Online fit of the concession curve of the opponent in a negotiation session of agent NiceHardHeaded of group 13 of Multi-Agent Systems project,
+ * kept in the {@link SessionContext} of the session and shared by the acceptance and bidding strategy.
+ * The utility of its own bids for the opponent, as given by the opponent model, is fitted to u(t) = a - b * t^(1/e).
+ * For a fixed exponent e this is linear in a and b, so one recursive least squares filter runs for each exponent of a grid
+ * from 0.1 to 10, evenly spaced in log(e), each following its recent squared prediction error.
+ * The exponent is the one of the filter predicting best, refined between its neighbours by a parabola through their errors.
+ * An exponent above 1 is a conceder, below 1 a boulware opponent.
+ * The confidence grows with the number of bids and with how much better the best filter predicts than the worst,
+ * so an opponent whose bids fit any exponent equally well, like one that never concedes, gets no confidence.
+ *
+ * A filter whose regressor t^(1/e) stays near 0, as for a low exponent early in the session, learns nothing about b,
+ * and forgetting alone would let the variance of b grow without bound, so the trace of the covariance is kept at most its initial value.
+ *
+ * Each bid costs one update of every filter, a constant time without allocation.
+ */
+public class ConcessionFit {
+
+	// Number of exponents of the grid, and its lowest and highest exponent
+	private static final int EXPONENTS = 9;
+	private static final double MIN_EXPONENT = 0.1, MAX_EXPONENT = 10;
+	// Forgetting factor of the filters and of their errors, so the fit follows an opponent changing its strategy
+	private static final double LAMBDA = 0.99;
+	// Initial variance of the parameters of each filter, so the trace of its covariance is kept at most twice this
+	private static final double INITIAL_VARIANCE = 1000;
+	// Number of bids at which the confidence from the number of bids is one half
+	private static final int HALF_CONFIDENCE_BIDS = 10;
+
+	private final NegotiationSession negotiationSession;
+	// Utilities of bids shared with the other components of the session
+	private final UtilityCache utilityCache;
+	// Distance between successive exponents of the grid in log(e), and 1 / e of each exponent
+	private final double logStep;
+	private final double[] inverseExponents = new double[EXPONENTS];
+	// Parameters a and b of each filter, the symmetric matrix P of its parameter covariance, and its weighted squared error
+	private final double[] a = new double[EXPONENTS], b = new double[EXPONENTS];
+	private final double[] p00 = new double[EXPONENTS], p01 = new double[EXPONENTS], p11 = new double[EXPONENTS];
+	private final double[] errors = new double[EXPONENTS];
+	// Number of received bids fitted
+	private int count;
+
+	public ConcessionFit(NegotiationSession negotiationSession, UtilityCache utilityCache) {
+		this.negotiationSession = negotiationSession;
+		this.utilityCache = utilityCache;
+		this.logStep = Math.log(MAX_EXPONENT / MIN_EXPONENT) / (EXPONENTS - 1);
+		for (int k = 0; k < EXPONENTS; k++) {
+			inverseExponents[k] = 1 / (MIN_EXPONENT * Math.exp(k * logStep));
+			p00[k] = INITIAL_VARIANCE;
+			p11[k] = INITIAL_VARIANCE;
+		}
+	}
+
+	/**
+	 * Fit the bids received since the last update, with their opponent utility given by the model at this moment.
+	 */
+	public void update(OpponentModel opponentModel) {
+		if (opponentModel == null) {
+			return;
+		}
+		List<BidDetails> history = negotiationSession.getOpponentBidHistory().getHistory();
+		for (int i = count; i < history.size(); i++) {
+			BidDetails bid = history.get(i);
+			add(bid.getTime(), utilityCache.getOpponentUtility(opponentModel, bid.getBid()));
+		}
+	}
+
+	/**
+	 * Update every filter with the utility of one bid at the given time.
+	 */
+	public void add(double time, double utility) {
+		// A bid without a finite time and utility tells nothing about the curve, but is counted as taken
+		if (Double.isNaN(time) || Double.isNaN(utility) || Double.isInfinite(utility)) {
+			count++;
+			return;
+		}
+		double t = Math.max(0, Math.min(1, time));
+		for (int k = 0; k < EXPONENTS; k++) {
+			// Regressors are 1 and -x, so the prediction is a - b * x
+			double x = Math.pow(t, inverseExponents[k]);
+			double pPhi0 = p00[k] - p01[k] * x;
+			double pPhi1 = p01[k] - p11[k] * x;
+			double denominator = LAMBDA + pPhi0 - x * pPhi1;
+			double gain0 = pPhi0 / denominator, gain1 = pPhi1 / denominator;
+			double error = utility - (a[k] - b[k] * x);
+			a[k] += gain0 * error;
+			b[k] += gain1 * error;
+			p00[k] = (p00[k] - gain0 * pPhi0) / LAMBDA;
+			p01[k] = (p01[k] - gain0 * pPhi1) / LAMBDA;
+			p11[k] = (p11[k] - gain1 * pPhi1) / LAMBDA;
+			// Scale the covariance back once its trace exceeds the initial one, which leaves the direction of each update unchanged
+			double trace = p00[k] + p11[k];
+			if (trace > 2 * INITIAL_VARIANCE) {
+				double scale = 2 * INITIAL_VARIANCE / trace;
+				p00[k] *= scale;
+				p01[k] *= scale;
+				p11[k] *= scale;
+			}
+			errors[k] = LAMBDA * errors[k] + (1 - LAMBDA) * error * error;
+		}
+		count++;
+	}
+
+	/**
+	 * @return number of bids fitted
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return estimated concession exponent e, 1 if no bid is fitted yet
+	 */
+	public double getExponent() {
+		if (count == 0) {
+			return 1;
+		}
+		int best = getBestFilter();
+		double offset = 0;
+		if (best > 0 && best < EXPONENTS - 1) {
+			double curvature = errors[best - 1] - 2 * errors[best] + errors[best + 1];
+			if (curvature > 0) {
+				offset = Math.max(-0.5, Math.min(0.5, 0.5 * (errors[best - 1] - errors[best + 1]) / curvature));
+			}
+		}
+		return MIN_EXPONENT * Math.exp((best + offset) * logStep);
+	}
+
+	/**
+	 * @return confidence in the exponent, between 0 and 1
+	 */
+	public double getConfidence() {
+		if (count == 0) {
+			return 0;
+		}
+		double worst = 0;
+		for (int k = 0; k < EXPONENTS; k++) {
+			worst = Math.max(worst, errors[k]);
+		}
+		if (worst <= 0) {
+			return 0;
+		}
+		double separation = 1 - errors[getBestFilter()] / worst;
+		return separation * count / (double) (count + HALF_CONFIDENCE_BIDS);
+	}
+
+	/**
+	 * How much the opponent concedes, weighed by the confidence:
+	 * 1 for a certain conceder with the highest exponent, -1 for a certain boulware opponent with the lowest,
+	 * and 0 for a linear or unknown opponent.
+	 *
+	 * @return concession of the opponent, between -1 and 1
+	 */
+	public double getConcession() {
+		double degree = Math.log(getExponent()) / Math.log(MAX_EXPONENT);
+		return getConfidence() * Math.max(-1, Math.min(1, degree));
+	}
+
+	private int getBestFilter() {
+		int best = 0;
+		for (int k = 1; k < EXPONENTS; k++) {
+			if (errors[k] < errors[best]) {
+				best = k;
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,265 @@
+package group13;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import genius.core.Bid;
+import genius.core.bidding.BidDetails;
+import genius.core.issue.IssueDiscrete;
+
+/**
+ * Frequency opponent model of agent NiceHardHeaded of group 13 of Multi-Agent Systems project, stored in flat primitive arrays.
+ * Bids are read through a {@link BidCodec}. Issue weights are kept in a double[] by issue position, and the number of times each value is offered in an int[]
+ * where the values of issue i start at offsets[i]. The utility of a value is its count divided by the highest count of its issue,
+ * the same normalization as EvaluatorDiscrete, so the model gives the same utilities as an AdditiveUtilitySpace
+ * with these weights and counts, without creating any objects when it is updated or evaluated.
+ * The highest count of each issue and the weight divided by it are kept up to date on every update, which costs O(issues),
+ * so evaluating a bid is one multiply-add per issue.
+ *
+ * Issue weights follow the rule of the original opponent model exactly. That model set the weight of each unchanged issue
+ * with AdditiveUtilitySpace.setWeight, in the iteration order of a HashSet of issue numbers, and every setWeight renormalized
+ * all issue weights to sum to 1, adding a small correction to each weight so no weight gets stuck at 0.
+ * Both the order and the renormalization are repeated here.
+ */
+public class FrequencyModel {
+
+	// Correction added to each weight when AdditiveUtilitySpace renormalizes the issue weights
+	private static final double RENORMALIZATION_CORRECTION = 0.05;
+	// Initial capacity and load factor of the HashSet of unchanged issues of the original model
+	private static final int SET_CAPACITY = 16;
+	private static final float SET_LOAD_FACTOR = 0.75f;
+
+	// Encoding of the bids of the domain
+	private final BidCodec codec;
+	// Number of issues
+	private final int issueCount;
+	// Position of the first value of each issue in counts, offsets[issueCount] is the total number of values
+	private final int[] offsets;
+	// Weight of each issue
+	private final double[] weights;
+	// Number of times each value is offered, starting from 1
+	private final int[] counts;
+	// Value index of each issue of the last two bids, reused on every update
+	private final int[] previousValues, currentValues;
+	// Highest count of the values of each issue
+	private final int[] maxCounts;
+	// Weight of each issue divided by its highest count
+	private final double[] scales;
+	// The value to be added to weights of unchanged issues before normalization
+	private final double valueAddition;
+	// Issue positions in the iteration order of a HashSet of issue numbers, per doubling of the capacity of the set
+	private final int[][] visitOrders;
+
+	/**
+	 * Create a model with equal issue weights and all value counts set to 1.
+	 *
+	 * @param codec: encoding of the bids of the domain.
+	 * @param learningRate: weight added in total to unchanged issues on each update.
+	 */
+	public FrequencyModel(BidCodec codec, double learningRate) {
+		this.codec = codec;
+		this.issueCount = codec.getIssueCount();
+		offsets = new int[issueCount + 1];
+		for (int i = 0; i < issueCount; i++) {
+			offsets[i + 1] = offsets[i] + codec.getValueCount(i);
+		}
+		weights = new double[issueCount];
+		counts = new int[offsets[issueCount]];
+		previousValues = new int[issueCount];
+		currentValues = new int[issueCount];
+		maxCounts = new int[issueCount];
+		scales = new double[issueCount];
+		valueAddition = learningRate / issueCount;
+		for (int i = 0; i < issueCount; i++) {
+			weights[i] = 1.0 / issueCount;
+			maxCounts[i] = 1;
+			scales[i] = weights[i];
+		}
+		for (int v = 0; v < counts.length; v++) {
+			counts[v] = 1;
+		}
+		int levels = 1;
+		while (issueCount > (int) (SET_LOAD_FACTOR * (SET_CAPACITY << (levels - 1)))) {
+			levels++;
+		}
+		visitOrders = new int[levels][];
+		for (int level = 0; level < levels; level++) {
+			visitOrders[level] = getVisitOrder(SET_CAPACITY << level);
+		}
+	}
+
+	/**
+	 * A HashSet visits its buckets in order of the spread hash of the element masked by the capacity,
+	 * and the elements of one bucket in the order they were added, which is the order of the issues in the domain.
+	 *
+	 * @return issue positions in the iteration order of a HashSet of issue numbers with the given capacity
+	 */
+	private int[] getVisitOrder(int capacity) {
+		final int[] buckets = new int[issueCount];
+		Integer[] order = new Integer[issueCount];
+		for (int i = 0; i < issueCount; i++) {
+			int hash = codec.getIssue(i).getNumber();
+			buckets[i] = (hash ^ (hash >>> 16)) & (capacity - 1);
+			order[i] = i;
+		}
+		// The sort is stable, so issues in one bucket stay in the order of the domain
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Integer.compare(buckets[a], buckets[b]);
+			}
+		});
+		int[] positions = new int[issueCount];
+		for (int i = 0; i < issueCount; i++) {
+			positions[i] = order[i];
+		}
+		return positions;
+	}
+
+	/**
+	 * Learn from two successive opponent bids.
+	 * Issues whose value is unchanged gain weight, each followed by a renormalization of all weights,
+	 * then the value offered in the current bid is counted once more for every issue.
+	 */
+	public void update(Bid previousBid, Bid currentBid) {
+		codec.encode(previousBid, previousValues);
+		codec.encode(currentBid, currentValues);
+		int unchanged = 0;
+		for (int i = 0; i < issueCount; i++) {
+			if (previousValues[i] == currentValues[i]) {
+				unchanged++;
+			}
+		}
+		// The total sum of issue weights before normalization, and the maximum possible weight
+		double weightSum = 1.0 + valueAddition * unchanged;
+		double maxWeight = 1.0 - issueCount * valueAddition / weightSum;
+		// Visit the unchanged issues in the order of a HashSet holding that many of them
+		int level = 0;
+		while (unchanged > (int) (SET_LOAD_FACTOR * (SET_CAPACITY << level))) {
+			level++;
+		}
+		for (int i : visitOrders[level]) {
+			if (previousValues[i] == currentValues[i]) {
+				weights[i] = weights[i] < maxWeight ? (weights[i] + valueAddition) / weightSum : weights[i] / weightSum;
+				normalizeWeights();
+			}
+		}
+		for (int i = 0; i < issueCount; i++) {
+			// Counts only grow, so the highest count can only be overtaken by the value just counted
+			int count = ++counts[offsets[i] + currentValues[i]];
+			if (count > maxCounts[i]) {
+				maxCounts[i] = count;
+			}
+			scales[i] = weights[i] / maxCounts[i];
+		}
+	}
+
+	/**
+	 * Make the weights sum to 1 the way AdditiveUtilitySpace.normalizeChildren does for unlocked weights:
+	 * the difference to 1 is shared in proportion to each weight plus a small correction, and no weight goes below 0.
+	 */
+	private void normalizeWeights() {
+		if (issueCount == 1) {
+			weights[0] = 1;
+			return;
+		}
+		double sum = 0;
+		for (int i = 0; i < issueCount; i++) {
+			sum += weights[i];
+		}
+		double difference = 1 - sum;
+		double denominator = sum + issueCount * RENORMALIZATION_CORRECTION;
+		for (int i = 0; i < issueCount; i++) {
+			weights[i] = Math.max(0, weights[i] + difference * (weights[i] + RENORMALIZATION_CORRECTION) / denominator);
+		}
+	}
+
+	/**
+	 * Evaluate the utility of a bid for the opponent.
+	 *
+	 * @return utility in [0, 1]
+	 */
+	public double evaluate(Bid bid) {
+		double utility = 0;
+		for (int i = 0; i < issueCount; i++) {
+			utility += scales[i] * counts[offsets[i] + codec.getValueIndex(bid, i)];
+		}
+		return utility > 1 ? 1 : utility;
+	}
+
+	/**
+	 * Evaluate the utility of an encoded bid for the opponent.
+	 *
+	 * @param values: value index of each issue, see {@link BidCodec}.
+	 * @return utility in [0, 1]
+	 */
+	public double evaluate(int[] values) {
+		double utility = 0;
+		for (int i = 0; i < issueCount; i++) {
+			utility += scales[i] * counts[offsets[i] + values[i]];
+		}
+		return utility > 1 ? 1 : utility;
+	}
+
+	/**
+	 * Evaluate the utility of a list of bids for the opponent in one sweep.
+	 *
+	 * @param bids: bids to evaluate.
+	 * @param utilities: array to store the utility of each bid, at least as long as the list.
+	 */
+	public void evaluate(List<BidDetails> bids, double[] utilities) {
+		for (int b = 0; b < bids.size(); b++) {
+			Bid bid = bids.get(b).getBid();
+			double utility = 0;
+			for (int i = 0; i < issueCount; i++) {
+				utility += scales[i] * counts[offsets[i] + codec.getValueIndex(bid, i)];
+			}
+			utilities[b] = utility > 1 ? 1 : utility;
+		}
+	}
+
+	/**
+	 * Store the utility of each value of each issue, multiplied by the weight of the issue, for {@link BatchScorer}.
+	 *
+	 * @param table: table to fill, or null to allocate one.
+	 * @return the filled table
+	 */
+	public double[][] getUtilityTable(double[][] table) {
+		if (table == null) {
+			table = new double[issueCount][];
+			for (int i = 0; i < issueCount; i++) {
+				table[i] = new double[offsets[i + 1] - offsets[i]];
+			}
+		}
+		for (int i = 0; i < issueCount; i++) {
+			for (int v = 0; v < table[i].length; v++) {
+				table[i][v] = scales[i] * counts[offsets[i] + v];
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * @return highest count of the values of the issue at given position
+	 */
+	public int getMaxCount(int issue) {
+		return maxCounts[issue];
+	}
+
+	public int getIssueCount() {
+		return issueCount;
+	}
+
+	public IssueDiscrete getIssue(int issue) {
+		return codec.getIssue(issue);
+	}
+
+	public double getWeight(int issue) {
+		return weights[issue];
+	}
+
+	public int getCount(int issue, int value) {
+		return counts[offsets[issue] + value];
+	}
+}
@@ -1,17 +1,18 @@
 package group13;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
-import java.util.Queue;
+import java.util.Set;
 
 import genius.core.Bid;
 import genius.core.boaframework.AcceptanceStrategy;
 import genius.core.boaframework.Actions;
+import genius.core.boaframework.BOAparameter;
 import genius.core.boaframework.NegotiationSession;
 import genius.core.boaframework.OfferingStrategy;
 import genius.core.boaframework.OpponentModel;
 import genius.core.uncertainty.UserModel;
+import genius.core.utility.AbstractUtilitySpace;
 
 /**
  * Acceptance strategy for agent NiceHardHeaded of group 13 of Multi-agents Systems project
@@ -21,26 +22,35 @@ import genius.core.uncertainty.UserModel;
  */
 public class Group13_AS extends AcceptanceStrategy {
 	
-	// Duration of each phase
+	// Duration of each phase, phase 3 takes the time left after phase 1 and 2, set by parameters p1 and p2
 	private final double[] endPhases = {0.5, 0.45, 0.05};
+	// Multiplier of received utility in each phase, set by parameters m1, m2 and m3
+	private final double[] acceptMultiplier = {0.9, 1.0, 1.1};
 	// Possible utility threshold from possible bids in each phase
 	private double[] maxThresArray;
-	// Opponent tyep, 1 stands for conceder and 2 stands for boulware
-	private int opponentType;
-	// Size of queue to calculated moves left
-	private final int queueSize = 3;
-	// Size of queue to store opponent utility
-	private final int queueUtilitySize = 15;
-	// Queue to store time spent on last 15 rounds
-	private Queue<Double> queue;
-	// Queue to store opponent utility
-	private Queue<Double> queueUtility;
+	// Utility space which maxThresArray is calculated from
+	private AbstractUtilitySpace thresholdSpace;
+	// How much the opponent concedes, from -1 for boulware to 1 for conceder, 0 if unknown
+	private double opponentConcession;
+	// Fit of the concession curve of the opponent, shared with the bidding strategy of the session
+	private ConcessionFit concessionFit;
 	// Threshold of our acceptance condition
 	private double threshold;
-	// Phase number, including 1, 2, 3
-	private static int phase = 1;
-	// Number of moves remaining in this negotiation
+	// Phase number, including 1, 2, 3. Kept per agent, so that sessions running in parallel do not share it
+	private int phase = 1;
+	// Number of moves remaining in this negotiation, UNKNOWN_MOVES before the round timer has an estimate
 	private int movesLeft; 
+	private final int UNKNOWN_MOVES = -1;
+	// Rank of each bid in the user model, under preference uncertainty
+	private BidRankIndex rankIndex;
+	// Utilities of bids shared with the other components of the session
+	private UtilityCache utilityCache;
+	// Time of a round, shared with the bidding strategy of the session
+	private RoundTimer roundTimer;
+	// Statistics of the received bids, kept in the context of the session
+	private OpponentStats opponentStats;
+	// Latency of determineAcceptability
+	private Instrumentation.Probe acceptProbe;
 	
 	/**
 	 * Empty constructor for the BOA framework.
@@ -61,6 +71,30 @@ public class Group13_AS extends AcceptanceStrategy {
 		this.negotiationSession = negoSession;
 		this.offeringStrategy = start;
 		this.opponentModel = opponentModel;
+		this.phase = 1;
+		this.maxThresArray = new double[4];
+		this.endPhases[0] = BoaParameters.get(parameters, "p1", 0.5);
+		this.endPhases[1] = BoaParameters.get(parameters, "p2", 0.45);
+		// Phases are shares of the negotiation, so none may be negative and the first two cannot take more than all of it
+		if (!(endPhases[0] >= 0 && endPhases[1] >= 0 && endPhases[0] + endPhases[1] <= 1)) {
+			throw new IllegalArgumentException("Parameters p1 = " + endPhases[0] + " and p2 = " + endPhases[1]
+					+ " must not be negative and must sum to at most 1");
+		}
+		this.endPhases[2] = 1 - endPhases[0] - endPhases[1];
+		this.acceptMultiplier[0] = BoaParameters.get(parameters, "m1", 0.9);
+		this.acceptMultiplier[1] = BoaParameters.get(parameters, "m2", 1.0);
+		this.acceptMultiplier[2] = BoaParameters.get(parameters, "m3", 1.1);
+		SessionContext context = SessionContext.of(negoSession, opponentModel, start);
+		this.utilityCache = context.getUtilityCache();
+		this.concessionFit = context.getConcessionFit();
+		this.roundTimer = context.getRoundTimer();
+		this.opponentStats = context.getOpponentStats();
+		this.acceptProbe = context.getInstrumentation().probe("Group13_AS.determineAcceptability", "ns");
+		try {
+			calculateMaxToMinThresholds();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
 	}
 
 	/**
@@ -73,29 +107,37 @@ public class Group13_AS extends AcceptanceStrategy {
 	 */
 	@Override
 	public Actions determineAcceptability() {
+		long start = acceptProbe.start();
+		Actions decision = decide();
+		acceptProbe.stop(start);
+		return decision;
+	}
+	
+	/**
+	 * Body of determineAcceptability, measured by the probe.
+	 */
+	private Actions decide() {
 		// Initialize varibles
 		Actions decision = Actions.Reject;
 		double utilityReceived = 0, prevUtil = 1;
-		double[] acceptMultiplier = {0.9, 1.0, 1.1};
-		maxThresArray = new double[4];
-		queue = new LinkedList<Double>();
-		queueUtility = new LinkedList<Double>();
 		UserModel userModel = negotiationSession.getUserModel();
 		// Preferance uncertainty
 		if (userModel != null) {
-			List<Bid> bidOrder = userModel.getBidRanking().getBidOrder();
+			rankIndex = BidRankIndex.of(rankIndex, userModel);
 			Bid lastBid = negotiationSession.getOwnBidHistory().getLastBid();
 			Bid receivedBid = negotiationSession.getOpponentBidHistory().getLastBid();
 			if (lastBid == null || receivedBid == null) {
 				return Actions.Reject;
 			}
 			if (negotiationSession.getTime() > 0.9) {
-				if (bidOrder.contains(receivedBid)) {
-					double ranking = (bidOrder.size() - bidOrder.indexOf(receivedBid)) / bidOrder.size();
+				int receivedRank = rankIndex.getRank(receivedBid);
+				if (receivedRank >= 0) {
+					double ranking = (rankIndex.size() - receivedRank) / (double) rankIndex.size();
 					if (ranking <= 0.1) {
 						return Actions.Accept;
 					}
-					if (bidOrder.contains(lastBid) && bidOrder.indexOf(receivedBid) < bidOrder.indexOf(lastBid)) {
+					int lastRank = rankIndex.getRank(lastBid);
+					if (lastRank >= 0 && receivedRank < lastRank) {
 						return Actions.Accept;
 					}
 				}
@@ -103,18 +145,22 @@ public class Group13_AS extends AcceptanceStrategy {
 			return Actions.Reject;
 		}
 		try {
+			roundTimer.update();
+			opponentStats.update();
 			// Effectively this will ensure that the utility is 0 if our agent is first
 			if (negotiationSession.getOpponentBidHistory().getHistory().size() > 0) {
 				// Get the utility we received from the last opponent bid
-				utilityReceived = negotiationSession.getUtilitySpace().getUtility(negotiationSession.getOpponentBidHistory().getLastBid());
+				utilityReceived = utilityCache.getUtility(negotiationSession.getOpponentBidHistory().getLastBid());
 			}
-			// Predict opponent type
-			opponentType = predictOpponentType(negotiationSession.getTime());
+			// Predict how much the opponent concedes
+			opponentConcession = predictOpponentConcession();
 			// Track opponent worst best given
-			prevUtil = negotiationSession.getUtilitySpace().getUtility(negotiationSession.getOpponentBidHistory().getWorstBidDetails().getBid());//the minimum utility got from opponent bid in history
-			// Calculate current phase, threshold array, current threshold, and how many rounds left
+			prevUtil = opponentStats.getMinUtility();//the minimum utility got from opponent bid in history
+			// Calculate current phase, threshold array if utility space is changed, current threshold, and how many rounds left
 			phase = calculateCurrentPhase(negotiationSession.getTime());
-			calculateMaxToMinThresholds();
+			if (negotiationSession.getUtilitySpace() != thresholdSpace) {
+				calculateMaxToMinThresholds();
+			}
 			threshold = calculateThreshold(negotiationSession.getTime());
 			movesLeft = calculateMovesLeft();
 		} catch (Exception e) {
@@ -134,14 +180,15 @@ public class Group13_AS extends AcceptanceStrategy {
 			}
 			break;
 		case 3:
-			// If there are more than 3 rounds left, accept only if we received more than 10/11 of the threshold
-			if (movesLeft >= 3) {
+			// If there are more than 3 rounds left, or it is not known yet, accept only if we received more than 10/11 of the threshold
+			if (movesLeft == UNKNOWN_MOVES || movesLeft >= 3) {
 				if (acceptMultiplier[phase - 1] * utilityReceived >= threshold) {
 					decision = Actions.Accept;
 				}
 			} else {
-					// Accept if we received more than worst bid we encounter 
-					if(utilityReceived >= prevUtil)	{
+					// Accept if we received more than worst bid we encounter, each discounted to the time it was offered
+					double now = negotiationSession.getTime();
+					if (utilityCache.discount(utilityReceived, now) >= utilityCache.discount(prevUtil, opponentStats.getMinUtilityTime()))	{
 						decision = Actions.Accept;
 					}
 			}
@@ -158,14 +205,6 @@ public class Group13_AS extends AcceptanceStrategy {
 	public int calculateCurrentPhase(double time) {
 		phase = 1;
 		if (time > endPhases[0] + endPhases[1]) {
-			// Store time used in past rounds
-			double lastTime = negotiationSession.getOwnBidHistory().getHistory().get(negotiationSession.getOwnBidHistory().getHistory().size() - 1).getTime();
-			double lastLastTime = negotiationSession.getOwnBidHistory().getHistory().get(negotiationSession.getOwnBidHistory().getHistory().size() - 2).getTime();
-			double gap = lastTime - lastLastTime;
-			queue.add(gap);
-			if (queue.size() > queueSize) {
-				queue.poll();
-			}
 			phase = 3;
 		} else if (time > endPhases[0]) {
 			phase = 2;
@@ -175,7 +214,8 @@ public class Group13_AS extends AcceptanceStrategy {
 	
 	/**
 	 * Calculate threshold range, maxThresArray[0] is the maximum and maxThresArray[3] is the minimum.
-	 * This function is called when calculating the threshold for each phase
+	 * This function is called at initialization, and again only if the utility space of the session is replaced,
+	 * since searching the maximum and minimum bid is expensive.
 	 * 
 	 * @throws Exception 
 	 */
@@ -184,12 +224,13 @@ public class Group13_AS extends AcceptanceStrategy {
 		maxThresArray[3] = negotiationSession.getUtilitySpace().getUtility(negotiationSession.getUtilitySpace().getMinUtilityBid());
 		maxThresArray[1] = (maxThresArray[0] - maxThresArray[3]) * 7 / 8 + maxThresArray[3];
 		maxThresArray[2] = (maxThresArray[0] - maxThresArray[3]) * 5 / 8 + maxThresArray[3];
+		thresholdSpace = negotiationSession.getUtilitySpace();
 	}   
 	
 	/**
 	 * Calculate threshold for each phase.
 	 * Phase 1 the threshold is fixed and high
-	 * Phase 2 the threshold changes with opponent 
+	 * Phase 2 the threshold changes with opponent, the more it concedes the higher the threshold at the end of the phase
 	 * Phase 3 the threshold decreases quickly to reach an agreement
 	 * 
 	 * @return current threshold 
@@ -200,11 +241,9 @@ public class Group13_AS extends AcceptanceStrategy {
 			threshold = maxThresArray[0]; 
 			break;
 		case 2:
-			if (opponentType == 1) {
-				threshold = maxThresArray[0] - (((time - endPhases[0]) / (endPhases[1])) * (maxThresArray[0] - maxThresArray[1]));
-			} else {
-				threshold = maxThresArray[0] - (((time - endPhases[0]) / (endPhases[1])) * (maxThresArray[0] - maxThresArray[2]));
-			}
+			// Between 5/8 of the range against a boulware or unknown opponent and 7/8 against a certain conceder
+			double phaseEnd = maxThresArray[2] + Math.max(0, opponentConcession) * (maxThresArray[1] - maxThresArray[2]);
+			threshold = maxThresArray[0] - (((time - endPhases[0]) / (endPhases[1])) * (maxThresArray[0] - phaseEnd));
 			break;
 		case 3:
 			threshold = maxThresArray[2] - (((time - endPhases[0] - endPhases[1]) / (endPhases[2])) * (maxThresArray[2] - maxThresArray[3]));
@@ -215,80 +254,45 @@ public class Group13_AS extends AcceptanceStrategy {
 
 	/**
 	 * Calculate the remaining moves.
-	 * left moves = left time / (time spent on last 15 moves / queue size)
+	 * The lower bound of the round timer is taken, so that rounds getting slower, like with a slow opponent, 
+	 * start the end game early rather than too late.
 	 * 
-	 * @return number of moves left
+	 * @return number of moves left, or UNKNOWN_MOVES if no round is measured yet
 	 */
 	public int calculateMovesLeft() {
-		// Avoid empty queue
-		if (queue.isEmpty()) {
-			movesLeft = 500;
+		double remaining = roundTimer.getRemainingRoundsLower();
+		if (remaining == RoundTimer.UNKNOWN) {
+			movesLeft = UNKNOWN_MOVES;
 		} else {
-			// Sum up all time in queue and calculated the average time
-			double total = 0;
-			for (double i : queue) {
-				total += i;
-			}
-			movesLeft = (int) Math.floor((1.0 - negotiationSession.getTime()) / (total / (double) queue.size()));
+			movesLeft = (int) Math.min(Integer.MAX_VALUE, Math.floor(remaining));
 		}
 		return movesLeft;
 	}
 	
 	/**
-	 * Calculate the type of opponent, 1 is conceder and 2 is boulware
+	 * Calculate how much the opponent concedes, by fitting the utilities of its bids for itself to a concession curve.
 	 * 
+	 * @return concession of the opponent, 1 for a certain conceder, -1 for a certain boulware opponent and 0 if unknown
 	 */
-	public int predictOpponentType(double time) {
-		// Default type is boulware
-		opponentType = 2;
-		// Sum and average of at most last 15 utilities of opponent bid 
-		double utilTotal = 0, average = 0;
-		// Utility of opponent last bid
-		double opponentUtil = opponentModel.getBidEvaluation(negotiationSession.getOpponentBidHistory().getLastBid());
-		
-		// Update queue
-		queueUtility.add(opponentUtil);	
-		if(queueUtility.size() > queueUtilitySize) {
-			queueUtility.poll();
-		}
-		
-		// Sum the utility up
-		for (double i : queueUtility) {
-			utilTotal += i;
-		}
-		// Calculated average
-		average = utilTotal / queueUtility.size();
-		
-		// If opponent bid gives itself less than 0.7 utility, then it possibly not greedy
-		if(average < 0.7) {
-			return 1;
-		} else {
-			// Calculate utilities of every 5 bid, and see how much can opponent receive from its own bid
-			// If the average of last 5 bid utilities is smaller than 90% of the average utility of those 5 bids before them, then it probably not greedy 
-			double temp = 0;
-			Double[] queueUtilityArray = queueUtility.toArray(new Double[queueUtility.size()]);
-			double[] averageUtility = new double[queueUtility.size() / 5];
-			
-			// Calculate average of opponent utility recently
-			for (int i = 0, j = 0, k = 0; i < queueUtility.size() - 1 - queueUtility.size() % 5; i++, j++) {
-				if (j == 5) {
-					averageUtility[averageUtility.length - 1 - k] = temp / 5;
-					k++;
-					temp = 0;
-					j = 0;
-				} else {
-					temp += queueUtilityArray[queueUtility.size() - 1 - i];
-				}
-			}
-			
-			// Check whether those utilities are droping rapidly
-			for (int i = 0; i < queueUtility.size() / 5; i++) {
-				if (averageUtility[i + 1] < 0.9 * averageUtility[i]) {
-					return 1;
-				}
-			}
-		}
-		return 2;
+	public double predictOpponentConcession() {
+		concessionFit.update(opponentModel);
+		return concessionFit.getConcession();
+	}
+
+	/**
+	 * Duration of the first two phases and the multiplier of received utility in each phase.
+	 * 
+	 * @return set of parameters
+	 */
+	@Override
+	public Set<BOAparameter> getParameterSpec() {
+		Set<BOAparameter> set = new HashSet<BOAparameter>();
+		set.add(new BOAparameter("p1", 0.5, "Duration of phase 1, with the highest threshold"));
+		set.add(new BOAparameter("p2", 0.45, "Duration of phase 2, with a threshold following the opponent concession"));
+		set.add(new BOAparameter("m1", 0.9, "Multiplier of received utility in phase 1"));
+		set.add(new BOAparameter("m2", 1.0, "Multiplier of received utility in phase 2"));
+		set.add(new BOAparameter("m3", 1.1, "Multiplier of received utility in phase 3"));
+		return set;
 	}
 
 	@Override
@@ -1,23 +1,27 @@
 package group13;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.Set;
 
 import genius.core.Bid;
 import genius.core.BidHistory;
 import genius.core.bidding.BidDetails;
-import genius.core.bidding.BidDetailsStrictSorterUtility;
+import genius.core.boaframework.BOAparameter;
 import genius.core.boaframework.NegotiationSession;
 import genius.core.boaframework.NoModel;
 import genius.core.boaframework.OMStrategy;
 import genius.core.boaframework.OfferingStrategy;
 import genius.core.boaframework.OpponentModel;
-import genius.core.boaframework.OutcomeSpace;
 import negotiator.boaframework.opponentmodel.DefaultModel;
 import genius.core.misc.Range;
+import genius.core.timeline.TimeLineInfo;
+import genius.core.timeline.Timeline;
 import genius.core.uncertainty.UserModel;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
 
 /**
  * Bidding strategy for agent NiceHardHead of group 13 of Multi-Agent Systems project
@@ -29,8 +33,42 @@ public class Group13_BS extends OfferingStrategy{
 	private Bid bestBid, worstBid;
 	private double maxUtil, minUtil, alpha; 
 	private final double TIME_MAX = 1.0;
-	private final double BETA = 0.01;
-	private OutcomeSpace outcome;
+	// Concession rate of the time-dependent tactic, set by parameter b
+	private double beta = 0.01;
+	// Weight of the time-dependent tactic in the target utility, the behaviour-dependent tactic has the rest, set by parameter w
+	private double timeWeight = 0.2;
+	// Lowest opponent utility of a bid worth offering, set by parameter c
+	private double opponentUtilityCut = 0.5;
+	// Domains with more outcomes than this are searched lazily instead of enumerated
+	private final long LAZY_OUTCOMES = 100000;
+	// Maximum number of bids generated for each widening of the range in lazy mode
+	private final int LAZY_BIDS_PER_WIDENING = 10000;
+	private OutcomeSource outcome;
+	// Largest change of the opponent utility of a bid for which the Pareto frontier is not computed again
+	private final double FRONTIER_TOLERANCE = 0.02;
+	// Pareto frontier of the enumerated outcomes, only if our own opponent model is used
+	private ParetoFrontier frontier;
+	// Objects shared with the other components of the session, and the utilities of bids among them
+	private SessionContext context;
+	private UtilityCache utilityCache;
+	// Bids added to the range by one widening, also as a matrix of value indices to evaluate them for the opponent together
+	private final List<BidDetails> newBids = new ArrayList<BidDetails>();
+	private BatchScorer newBidScorer;
+	// Opponent utility of each new bid
+	private double[] opponentUtilities = new double[0];
+	// Latency of determineNextBid, and number of bids scanned by each getMyBid
+	private Instrumentation instrumentation;
+	private Instrumentation.Probe nextBidProbe, scannedProbe;
+	// Number of bids scanned by the running getMyBid
+	private int scanned;
+	// Share of the time between two of our bids that one search may take
+	private final double SEARCH_SHARE = 0.25;
+	// Bounds of the time budget of one search, in nanoseconds
+	private final long MIN_SEARCH_NANOS = 5000000L, MAX_SEARCH_NANOS = 200000000L;
+	// Time of a round, shared with the acceptance strategy of the session
+	private RoundTimer roundTimer;
+	// Fit of the concession curve of the opponent, shared with the acceptance strategy of the session
+	private ConcessionFit concessionFit;
 	
 	/**
 	 * Empty constructor for BOA framework
@@ -41,6 +79,8 @@ public class Group13_BS extends OfferingStrategy{
 	/**
 	 * Init required for BOA framework.
 	 * Try to get the best and worst bid and their utility in this domain.
+	 * Small domains with an additive utility space are enumerated and sorted once, 
+	 * large ones are searched by generating bids near the target utility on demand.
 	 */
 	@Override
 	public void init(NegotiationSession negotiationSession, 
@@ -53,14 +93,30 @@ public class Group13_BS extends OfferingStrategy{
 		this.negotiationSession = negotiationSession;
 		this.opponentModel = opponentModel;
 		this.omStrategy = omStrategy;
-		this.outcome = new OutcomeSpace(negotiationSession.getUtilitySpace());
-		try {
-			this.bestBid = negotiationSession.getUtilitySpace().getMaxUtilityBid();
-			this.worstBid = negotiationSession.getUtilitySpace().getMinUtilityBid();
-			this.maxUtil = negotiationSession.getUtilitySpace().getUtility(bestBid);
-			this.minUtil = negotiationSession.getUtilitySpace().getUtility(worstBid);
-		} catch (Exception e) {
-			e.printStackTrace();
+		this.beta = BoaParameters.get(parameters, "b", 0.01);
+		this.timeWeight = BoaParameters.get(parameters, "w", 0.2);
+		this.opponentUtilityCut = BoaParameters.get(parameters, "c", 0.5);
+		this.context = SessionContext.of(negotiationSession, opponentModel, null);
+		this.utilityCache = context.getUtilityCache();
+		this.instrumentation = context.getInstrumentation();
+		this.nextBidProbe = instrumentation.probe("Group13_BS.determineNextBid", "ns");
+		this.scannedProbe = instrumentation.probe("Group13_BS.getMyBid bids scanned", "bids");
+		this.roundTimer = context.getRoundTimer();
+		this.concessionFit = context.getConcessionFit();
+		this.newBidScorer = new BatchScorer(new BidCodec(negotiationSession.getUtilitySpace().getDomain()), 1024);
+		AbstractUtilitySpace utilitySpace = negotiationSession.getUtilitySpace();
+		if (utilitySpace instanceof AdditiveUtilitySpace && utilitySpace.getDomain().getNumberOfPossibleBids() > LAZY_OUTCOMES) {
+			this.outcome = new LazyOutcomeSpace((AdditiveUtilitySpace) utilitySpace, LAZY_BIDS_PER_WIDENING);
+		} else {
+			this.outcome = new OutcomeIndex(utilitySpace);
+		}
+		this.bestBid = outcome.getMaxBid().getBid();
+		this.worstBid = outcome.getMinBid().getBid();
+		this.maxUtil = outcome.getMaxBid().getMyUndiscountedUtil();
+		this.minUtil = outcome.getMinBid().getMyUndiscountedUtil();
+		this.frontier = null;
+		if (outcome instanceof OutcomeIndex && opponentModel instanceof Group13_OM) {
+			this.frontier = new ParetoFrontier((OutcomeIndex) outcome, (Group13_OM) opponentModel, FRONTIER_TOLERANCE);
 		}
 	}
 	
@@ -78,9 +134,19 @@ public class Group13_BS extends OfferingStrategy{
 	 * 
 	 * @return bid to be offered to opponent.
 	 */
-	@SuppressWarnings("finally")
 	@Override
 	public BidDetails determineNextBid() {
+		long start = nextBidProbe.start();
+		BidDetails bid = nextBid();
+		nextBidProbe.stop(start);
+		return bid;
+	}
+	
+	/**
+	 * Body of determineNextBid, measured by the probe.
+	 */
+	@SuppressWarnings("finally")
+	private BidDetails nextBid() {
 		// Preferance uncertainty
 		UserModel userModel = negotiationSession.getUserModel();
 		if (userModel != null) {
@@ -93,7 +159,11 @@ public class Group13_BS extends OfferingStrategy{
 			return bid;
 		}
 		try {
+			roundTimer.update();
+			concessionFit.update(opponentModel);
+			scanned = 0;
 			bid = getMyBid(new Range(this.minUtil, this.maxUtil));
+			scannedProbe.record(scanned);
 		} catch (Exception e) {
 			e.printStackTrace();
 		} finally {
@@ -104,52 +174,180 @@ public class Group13_BS extends OfferingStrategy{
 	/**
 	 * Get bid details within given range using combination of time-dependent and behaviour-dependent tactic.
 	 * Compute the target utility and keep searching possible bids near target. 
-	 * All possible bid in one search will be add to a priority queue which is sorted by their utility. 
-	 * Once find one or more possible bid, poll the bid with maximum utility from the queue. 
+	 * If the Pareto frontier is known, only frontier bids in the range whose opponent utility is larger than the cut are considered, 
+	 * and OMS picks one of them. If there are none, the range is widened the same way, 
+	 * and in the end the frontier bid best for the opponent that reaches the target is offered.
+	 * Otherwise each time the range is widened, only the bids newly covered by the range are checked. 
+	 * Once find one or more possible bid, return the possible bid with maximum utility. 
+	 * Both searches stop when their time budget for this round runs out or the range cannot be widened any more,
+	 * and then return the best candidate found so far, or the bid closest to the target if there is none. 
 	 * 
 	 * @param range: record the lower and upper bound of possible bids.
 	 * @return next bid to be offered
 	 */
 	private BidDetails getMyBid(Range range) {
 		// Calculate alpha and utility of two tactic
-		this.alpha = calculateAlpha(negotiationSession.getTime(), BETA);
+		// Concede up to half as fast against a conceding opponent, and up to half again as fast against a boulware one
+		this.alpha = calculateAlpha(negotiationSession.getTime(), beta * (1 - 0.5 * concessionFit.getConcession()));
 		double timeDependentTargetUtility = getTimeDependentTargetUtility(range);
 		double behaviourDependentTargetUtility = getBehaviourDependentTargetUtility(range);
 		
 		// Calculate target utility using linear combination of two utility
-		double timeWeight = 0.2, behaviourWeight = 0.8;
+		double behaviourWeight = 1 - timeWeight;
 		double target = timeWeight * timeDependentTargetUtility + behaviourWeight * behaviourDependentTargetUtility;
 		
 		try {
-			// Initialize range around the target and priority queue for candidates
+			// Initialize range around the target
+			long deadline = System.nanoTime() + getSearchBudget();
 			Range targetRange = new Range(target - 0.01, target + 0.01);
-			Queue<BidDetails> bidCandidate = new PriorityQueue<>(new BidDetailsStrictSorterUtility());
+			if (frontier != null) {
+				// No bid off the frontier is worth offering, since a frontier bid gives both of us at least as much
+				while (System.nanoTime() < deadline) {
+					List<BidDetails> nearTarget = frontier.getBids(targetRange.getLowerbound(), targetRange.getUpperbound(), 
+							opponentUtilityCut, deadline);
+					scanned += nearTarget.size();
+					if (!nearTarget.isEmpty()) {
+						return omStrategy != null ? omStrategy.getBid(nearTarget) : nearTarget.get(nearTarget.size() - 1);
+					}
+					if (!widen(targetRange)) {
+						break;
+					}
+				}
+				// Otherwise offer the frontier bid best for the opponent that still reaches the target
+				return frontier.getBidAbove(target, deadline);
+			}
+			
+			// A cursor over the bids in the range
+			OutcomeSource.Cursor cursor = this.outcome.cursor(targetRange.getLowerbound(), targetRange.getUpperbound());
+			cursor.setDeadline(deadline);
+			BidDetails candidate = null;
 			
-			// Repeat this loop until we find such bid
-			while (bidCandidate.peek() == null) {
-				// Keep searching possible bid and if their utility is larger than 0.5, add them to the queue
-				for (BidDetails bid : this.outcome.getBidsinRange(targetRange)) {
-					if (this.opponentModel.getBidEvaluation(bid.getBid()) > 0.5) {
-						bidCandidate.add(bid);
+			// Repeat this loop until we find such bid, or the time is up
+			while (candidate == null && System.nanoTime() < deadline) {
+				// Check only the bids that were added to the range, and keep the one with highest utility whose opponent utility is larger than the cut
+				if (this.opponentModel instanceof Group13_OM) {
+					candidate = getBestNewBid(cursor, (Group13_OM) this.opponentModel, deadline);
+				} else {
+					for (BidDetails bid = cursor.next(); bid != null; bid = cursor.next()) {
+						scanned++;
+						if ((candidate == null || bid.getMyUndiscountedUtil() > candidate.getMyUndiscountedUtil()) 
+								&& utilityCache.getOpponentUtility(this.opponentModel, bid.getBid()) > opponentUtilityCut) {
+							candidate = bid;
+						}
+						// Look at the clock once per 64 bids
+						if ((scanned & 63) == 0 && System.nanoTime() >= deadline) {
+							break;
+						}
 					}
 				}
+				if (candidate != null) {
+					break;
+				}
 				
 				// Expand the range in case we can not find bid within this range
-				targetRange.setLowerbound(Math.max(targetRange.getLowerbound() - 0.01, 0.5));
-				targetRange.setUpperbound(Math.min(targetRange.getUpperbound() + 0.03, 1.0));
+				if (!widen(targetRange)) {
+					break;
+				}
+				cursor.widen(targetRange.getLowerbound(), targetRange.getUpperbound());
 			}
 			
-			// Return the head of the queue, repersenting the bid with highest utility in all possible bids
-			return bidCandidate.poll();
+			// Return the candidate, repersenting the bid with highest utility in all possible bids
+			if (candidate != null) {
+				return candidate;
+			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 		
-		// Return the best bid if some mistakes happen
+		// Return the bid closest to the target if no bid is found in time, or some mistakes happen
 		BidDetails nextBid = this.outcome.getBidNearUtility(target);
 		return nextBid;
 	}
 	
+	/**
+	 * Expand the range by 0.01 downwards and 0.03 upwards, until it reaches [0.5, 1.0].
+	 * 
+	 * @return false if the range cannot be widened any more
+	 */
+	private boolean widen(Range range) {
+		double lower = Math.max(range.getLowerbound() - 0.01, 0.5);
+		double upper = Math.min(range.getUpperbound() + 0.03, 1.0);
+		if (lower == range.getLowerbound() && upper == range.getUpperbound()) {
+			return false;
+		}
+		range.setLowerbound(lower);
+		range.setUpperbound(upper);
+		return true;
+	}
+	
+	/**
+	 * Take all bids the last widening added to the range and evaluate them for the opponent in one batch.
+	 * Our own utility of each bid is already known from the outcome source,
+	 * and the bids of an {@link OutcomeIndex} are taken from its value index matrix without encoding them again.
+	 * 
+	 * If the deadline passes while taking them, only the bids taken so far are evaluated.
+	 * 
+	 * @return the new bid with highest utility whose opponent utility is larger than the cut, or null if there is none
+	 */
+	private BidDetails getBestNewBid(OutcomeSource.Cursor cursor, Group13_OM model, long deadline) {
+		newBids.clear();
+		newBidScorer.clear();
+		OutcomeIndex index = cursor instanceof OutcomeIndex.Window ? (OutcomeIndex) outcome : null;
+		while (true) {
+			BidDetails bid;
+			if (index != null) {
+				int position = ((OutcomeIndex.Window) cursor).nextPosition();
+				if (position < 0) {
+					break;
+				}
+				bid = index.get(position);
+				newBidScorer.add(index.getValues(), position);
+			} else {
+				bid = cursor.next();
+				if (bid == null) {
+					break;
+				}
+				newBidScorer.add(bid.getBid());
+			}
+			newBids.add(bid);
+			// Look at the clock once per 64 bids
+			if ((newBids.size() & 63) == 0 && System.nanoTime() >= deadline) {
+				break;
+			}
+		}
+		if (opponentUtilities.length < newBids.size()) {
+			opponentUtilities = new double[Math.max(newBids.size(), 2 * opponentUtilities.length)];
+		}
+		model.getBidEvaluations(newBidScorer, opponentUtilities);
+		scanned += newBids.size();
+		BidDetails best = null;
+		for (int i = 0; i < newBids.size(); i++) {
+			BidDetails bid = newBids.get(i);
+			if ((best == null || bid.getMyUndiscountedUtil() > best.getMyUndiscountedUtil()) && opponentUtilities[i] > opponentUtilityCut) {
+				best = bid;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * The time budget of one search is a share of the time between our bids or of the time left, whichever is smaller, within fixed bounds,
+	 * so that a slow search cannot make us miss the deadline. Negotiations with a deadline in rounds get the largest budget.
+	 * 
+	 * @return time budget of one search in nanoseconds
+	 */
+	private long getSearchBudget() {
+		TimeLineInfo timeline = negotiationSession.getTimeline();
+		if (timeline == null || timeline.getType() != Timeline.Type.Time || !roundTimer.hasEstimate()) {
+			return MAX_SEARCH_NANOS;
+		}
+		double totalSeconds = timeline.getTotalTime();
+		double gapSeconds = roundTimer.getMeanGap() * totalSeconds;
+		double leftSeconds = (1 - negotiationSession.getTime()) * totalSeconds;
+		long budget = (long) (SEARCH_SHARE * Math.min(gapSeconds, leftSeconds) * 1e9);
+		return Math.max(MIN_SEARCH_NANOS, Math.min(MAX_SEARCH_NANOS, budget));
+	}
+	
 	/**
 	 * Agent will concede more rapidly as time passes. 
 	 * Alpha is parameter depend on time and beta.
@@ -197,9 +395,9 @@ public class Group13_BS extends OfferingStrategy{
 		else {
 			try {
 				// Calculate P using Relative Tit-For-Tat 
-				P = negotiationSession.getUtilitySpace().getUtility(negotiationSession.getOwnBidHistory().getHistory().get(negotiationSession.getOwnBidHistory().getHistory().size() - 2).getBid());
-				P /= opponentModel.getBidEvaluation(opponentBids.getHistory().get(opponentBids.getHistory().size() - 3).getBid());
-				P *= opponentModel.getBidEvaluation(opponentBids.getHistory().get(opponentBids.getHistory().size() - 1).getBid());
+				P = utilityCache.getUtility(negotiationSession.getOwnBidHistory().getHistory().get(negotiationSession.getOwnBidHistory().getHistory().size() - 2).getBid());
+				P /= utilityCache.getOpponentUtility(opponentModel, opponentBids.getHistory().get(opponentBids.getHistory().size() - 3).getBid());
+				P *= utilityCache.getOpponentUtility(opponentModel, opponentBids.getHistory().get(opponentBids.getHistory().size() - 1).getBid());
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
@@ -209,6 +407,34 @@ public class Group13_BS extends OfferingStrategy{
 		return P < this.minUtil ? this.minUtil : (P > this.maxUtil ? this.maxUtil : P);
 	}
 
+	/**
+	 * @return objects shared with the other components of the session
+	 */
+	public SessionContext getContext() {
+		return context;
+	}
+
+	/**
+	 * @return measurements of the components in this session
+	 */
+	public Instrumentation getInstrumentation() {
+		return instrumentation;
+	}
+
+	/**
+	 * Concession rate, weight of the time-dependent tactic and the opponent utility cut.
+	 * 
+	 * @return set of parameters
+	 */
+	@Override
+	public Set<BOAparameter> getParameterSpec() {
+		Set<BOAparameter> set = new HashSet<BOAparameter>();
+		set.add(new BOAparameter("b", 0.01, "Concession rate of the time-dependent tactic"));
+		set.add(new BOAparameter("w", 0.2, "Weight of the time-dependent tactic, the behaviour-dependent tactic has the rest"));
+		set.add(new BOAparameter("c", 0.5, "Lowest opponent utility of a bid worth offering"));
+		return set;
+	}
+
 	@Override
 	public String getName() {
 		return "Group13_bidding_strategy";
@@ -2,8 +2,10 @@ package group13;
 
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Random;
+
+import genius.core.Bid;
 
 import group13.Group13_AS;
 import group13.Group13_BS;
@@ -14,19 +16,32 @@ import genius.core.boaframework.BoaParty;
 import genius.core.boaframework.OMStrategy;
 import genius.core.boaframework.OfferingStrategy;
 import genius.core.boaframework.OpponentModel;
-import genius.core.issue.IssueDiscrete;
-import genius.core.issue.ValueDiscrete;
 import genius.core.parties.NegotiationInfo;
-import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
+import genius.core.uncertainty.ExperimentalUserModel;
 import genius.core.utility.AbstractUtilitySpace;
 
 @SuppressWarnings("serial")
 public class Group13_NiceHardHead extends BoaParty {
 
+	// Time budget of estimating the utility space from the bid ranking, in nanoseconds
+	private final long ESTIMATE_BUDGET = 150000000L;
+	// Scale of the fractions recorded about the estimated utility space, which probes record as whole numbers
+	private static final double PARTS_PER_MILLION = 1e6;
+	// Bidding strategy, which holds the measurements of the session
+	private Group13_BS offering;
+	// Time in nanoseconds and epochs the estimate of the utility space took, -1 if not measured or already recorded,
+	// since the estimate is made before the session and its measurements exist
+	private long estimateNanos = -1;
+	private int estimateEpochs;
+	// Ranking accuracy of the estimate, its order agreement with the real utility space and its mean absolute error, 
+	// null if the real utility space is not known
+	private double[] estimateFit;
+
 	@Override
 	public void init(NegotiationInfo info) {
 		AcceptanceStrategy ac  = new Group13_AS();
-		OfferingStrategy   os  = new Group13_BS();
+		offering = new Group13_BS();
+		OfferingStrategy   os  = offering;
 		OpponentModel      om  = new Group13_OM();
 		OMStrategy         oms = new Group13_OMS();
 		
@@ -40,23 +55,70 @@ public class Group13_NiceHardHead extends BoaParty {
 		super.init(info);
 	}
 
+	/**
+	 * Estimate issue weights and value utilities from the bid ranking of the user model,
+	 * by fitting them to the order of the ranking within a fixed time budget. 
+	 * When measuring is on, keep how long the estimate took and, if the real utility space is available, how close the estimate is,
+	 * for the measurements of the session.
+	 */
 	@Override
 	public AbstractUtilitySpace estimateUtilitySpace() 
 	{
-		AdditiveUtilitySpaceFactory additiveUtilitySpaceFactory = new AdditiveUtilitySpaceFactory(getDomain());
-		List<IssueDiscrete> issues = additiveUtilitySpaceFactory.getIssues();
-		for (IssueDiscrete i : issues)
+		RankingEstimator estimator = new RankingEstimator(new BidCodec(getDomain()), userModel.getBidRanking().getBidOrder());
+		long start = System.nanoTime();
+		estimator.fit(ESTIMATE_BUDGET, rand);
+		long elapsed = System.nanoTime() - start;
+		
+		if (Instrumentation.ENABLED) 
 		{
-			additiveUtilitySpaceFactory.setWeight(i, rand.nextDouble());
-			for (ValueDiscrete v : i.getValues())
-				additiveUtilitySpaceFactory.setUtility(i, v, rand.nextDouble());
+			estimateNanos = elapsed;
+			estimateEpochs = estimator.getEpochs();
+			estimateFit = null;
+			if (userModel instanceof ExperimentalUserModel) 
+			{
+				// Sample with a generator of its own, so measuring does not change the random draws of the session
+				Random sample = new Random(0);
+				double[] fit = estimator.compare(((ExperimentalUserModel) userModel).getRealUtilitySpace(), sample, 1000);
+				estimateFit = new double[] { estimator.getRankingAccuracy(sample, 1000), fit[0], fit[1] };
+			}
 		}
 		
-		// Normalize the weights, since we picked them randomly in [0, 1]
-		additiveUtilitySpaceFactory.normalizeWeights();
-		
-		// The factory is done with setting all parameters, now return the estimated utility space
-		return additiveUtilitySpaceFactory.getUtilitySpace();
+		// The estimator is done with fitting all parameters, now return the estimated utility space
+		return estimator.toUtilitySpace();
+	}
+	
+	/**
+	 * Write the measurements of the components and of the estimate of the utility space, if measuring is on, next to the tournament log.
+	 */
+	@Override
+	public HashMap<String, String> negotiationEnded(Bid acceptedBid) {
+		Map<String, String> result = super.negotiationEnded(acceptedBid);
+		Instrumentation instrumentation = offering.getInstrumentation();
+		if (instrumentation != null) {
+			recordEstimate(instrumentation);
+			instrumentation.export();
+		}
+		return result == null ? null : new HashMap<String, String>(result);
+	}
+	
+	/**
+	 * Record the measurements of the estimate of the utility space, fractions in parts per million.
+	 */
+	private void recordEstimate(Instrumentation instrumentation) {
+		if (estimateNanos < 0) {
+			return;
+		}
+		// In milliseconds, since the probe is not a measured call and has no allocations to report
+		instrumentation.probe("Group13_NiceHardHead.estimateUtilitySpace", "ms").record(estimateNanos / 1000000);
+		instrumentation.probe("Group13_NiceHardHead.estimateUtilitySpace epochs", "epochs").record(estimateEpochs);
+		if (estimateFit != null) {
+			String[] names = { "ranking accuracy", "order agreement", "mean absolute error" };
+			for (int i = 0; i < names.length; i++) {
+				instrumentation.probe("Group13_NiceHardHead.estimateUtilitySpace " + names[i], "ppm")
+						.record(Math.round(estimateFit[i] * PARTS_PER_MILLION));
+			}
+		}
+		estimateNanos = -1;
 	}
 	
 	@Override
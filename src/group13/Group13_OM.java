@@ -1,8 +1,8 @@
 package group13;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import genius.core.Bid;
@@ -12,101 +12,85 @@ import genius.core.boaframework.NegotiationSession;
 import genius.core.boaframework.OpponentModel;
 import genius.core.issue.Issue;
 import genius.core.issue.IssueDiscrete;
-import genius.core.issue.Objective;
-import genius.core.issue.ValueDiscrete;
 import genius.core.utility.AdditiveUtilitySpace;
-import genius.core.utility.Evaluator;
 import genius.core.utility.EvaluatorDiscrete;
 
 /**
  * Opponent model for agent NiceHardHead of group 13 for Multi-Agent Systems project
+ * Issue weights and value counts are kept in a {@link FrequencyModel}, 
+ * an opponent utility space is only built when some other component asks for it, and kept until the model changes.
+ * The accessors of the base class that read the opponent utility space read the model instead, so they never see a stale space.
  * 
  * @author Siyang Qian
  */
 public class Group13_OM extends OpponentModel {
 
-	// Weight coefficient
-	private final double learningRate = 0.25;
-	// Number of issues
-    private int issueNumber;
-    // Learning weight
-    // private final double beta = 5.0;
-    // The value to be added to weights of unchanged issues before normalization.
-    private double valueAddition;
+	// Weight coefficient, set by parameter l
+	private double learningRate = 0.25;
+	// Issue weights and value counts of the opponent
+	private FrequencyModel model;
+	// Number of changes of the model, so that cached opponent utilities can be dropped
+	private int version;
+	// Weighted utility of each value of each issue, refilled for every batch of candidates
+	private double[][] utilityTable;
+	// Version of the model the opponent utility space was built from
+	private int spaceVersion = -1;
+	// Objects shared with the other components of the session
+	private SessionContext context;
+	// Latency of updateModel and getBidEvaluation
+	private Instrumentation.Probe updateProbe, evaluationProbe;
 
     /**
      * Initialize method
+     * Set all issue equal weights, and set value weights to 1.
      */
 	@Override
 	public void init(NegotiationSession negotiationSession,	Map<String, Double> parameters) {
 		this.negotiationSession = negotiationSession;
-		opponentUtilitySpace = (AdditiveUtilitySpace) negotiationSession.getUtilitySpace().copy();
-		issueNumber = opponentUtilitySpace.getDomain().getIssues().size();
-		valueAddition = learningRate / issueNumber;
-		// Set all issue equal weights, and set value weights to 1.
-        double oriWeight = 1.0 / issueNumber;
-        try {
-        	for (Entry<Objective, Evaluator> eva : opponentUtilitySpace.getEvaluators()) {
-        		opponentUtilitySpace.unlock(eva.getKey());
-        		eva.getValue().setWeight(oriWeight);
-        		for (ValueDiscrete value : ((IssueDiscrete) eva.getKey()).getValues()) {
-        			((EvaluatorDiscrete) eva.getValue()).setEvaluation(value, 1);
-        		}
-        	}
-        } catch (Exception e) {
-        	e.printStackTrace();
-        }
+		this.context = new SessionContext(negotiationSession);
+		this.learningRate = BoaParameters.get(parameters, "l", 0.25);
+		this.model = new FrequencyModel(new BidCodec(negotiationSession.getUtilitySpace().getDomain()), learningRate);
+		this.utilityTable = null;
+		this.opponentUtilitySpace = null;
+		this.updateProbe = context.getInstrumentation().probe("Group13_OM.updateModel", "ns");
+		this.evaluationProbe = context.getInstrumentation().probe("Group13_OM.getBidEvaluation", "ns");
+		this.version++;
 	}
 	
 	/**
 	 * Update opponent model using last bid from opponent and current time.
+	 * Increase the weight of issues which are unchanged since the previous bid, 
+	 * and increase the importance of values offered last time.
 	 */
 	@Override
 	public void updateModel(Bid opponentBid, double time) {
 		if (negotiationSession.getOpponentBidHistory().size() < 2) {
 			return;
 		}
-		double weightSum = 1.0, maxWeight = 1.0;
-		Set<Integer> unchangedIssue = new HashSet<>();
-		BidDetails currOpponentBid = null, prevOpponentBid = null;
+		long start = updateProbe.start();
 		try {
-			currOpponentBid= negotiationSession.getOpponentBidHistory().getHistory().get(negotiationSession.getOpponentBidHistory().size() - 1);
-			prevOpponentBid= negotiationSession.getOpponentBidHistory().getHistory().get(negotiationSession.getOpponentBidHistory().size() - 2);
-			for (Issue i : opponentUtilitySpace.getDomain().getIssues()) {
-				if (currOpponentBid.getBid().getValue(i.getNumber()).equals(prevOpponentBid.getBid().getValue(i.getNumber()))) {
-					unchangedIssue.add(i.getNumber());
-				}
-			}
-			// The total sum of issue weights before normalization
-			weightSum += valueAddition * unchangedIssue.size();
-			maxWeight -= issueNumber * valueAddition / weightSum;
+			BidDetails currOpponentBid = negotiationSession.getOpponentBidHistory().getHistory().get(negotiationSession.getOpponentBidHistory().size() - 1);
+			BidDetails prevOpponentBid = negotiationSession.getOpponentBidHistory().getHistory().get(negotiationSession.getOpponentBidHistory().size() - 2);
+			model.update(prevOpponentBid.getBid(), currOpponentBid.getBid());
+			version++;
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
-		
-		// Set new weight for each issue
-		for (int i : unchangedIssue) {
-			Objective issue = opponentUtilitySpace.getDomain().getObjectivesRoot().getObjective(i);
-			double weight = opponentUtilitySpace.getWeight(i);
-			double newWeight;
-			newWeight = (unchangedIssue.contains(i) && weight < maxWeight) ? (weight + valueAddition) / weightSum : weight / weightSum;
-			opponentUtilitySpace.setWeight(issue, newWeight);
-		}
-		
-		// Update value to be added to weight.
-		// This value will decays as time passes. 
-		// valueAddition = valueAddition * (1 - Math.pow(time, beta)); //the effect decays over time
+		updateProbe.stop(start);
+	}
 
-		try {
-			// Increase the improtance to those issue that offered last time
-			for (Entry<Objective, Evaluator> eva : opponentUtilitySpace.getEvaluators()) {
-				IssueDiscrete issue = (IssueDiscrete) eva.getKey();
-				ValueDiscrete value = (ValueDiscrete) currOpponentBid.getBid().getValue(issue.getNumber());
-				((EvaluatorDiscrete) eva.getValue()).setEvaluation(value, ((EvaluatorDiscrete) eva.getValue()).getEvaluationNotNormalized(value) + 1);
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+	/**
+	 * @return objects shared with the other components of the session
+	 */
+	public SessionContext getContext() {
+		return context;
+	}
+
+	/**
+	 * @return number of changes of the model so far, any utility evaluated before a change is outdated
+	 */
+	public int getVersion() {
+		return version;
 	}
 
 	/**
@@ -118,14 +102,122 @@ public class Group13_OM extends OpponentModel {
 	@Override
 	public double getBidEvaluation(Bid bid) {
 		double result = 0;
+		long start = evaluationProbe.start();
 		try {
-			result = opponentUtilitySpace.getUtility(bid);
+			result = model.evaluate(bid);
 		} catch (Exception e) {
 			e.printStackTrace();
 		} finally {
+			evaluationProbe.stop(start);
 			return result;
 		}
 	}
+	
+	/**
+	 * Evaluate the utility of a list of bids for opponent in one sweep.
+	 * 
+	 * @param bids: bids to evaluate.
+	 * @param utilities: array to store the utility of each bid, at least as long as the list.
+	 */
+	public void getBidEvaluations(List<BidDetails> bids, double[] utilities) {
+		try {
+			model.evaluate(bids, utilities);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Evaluate the utility of a list of bids for opponent in one sweep.
+	 * 
+	 * @return utility of each bid, in the same order as the list
+	 */
+	public double[] getBidEvaluations(List<BidDetails> bids) {
+		double[] utilities = new double[bids.size()];
+		getBidEvaluations(bids, utilities);
+		return utilities;
+	}
+	
+	/**
+	 * Evaluate the utility of a matrix of candidate bids for opponent, one issue at a time.
+	 * 
+	 * @param candidates: bids to evaluate.
+	 * @param utilities: array to store the utility of each bid, at least as long as the number of candidates.
+	 */
+	public void getBidEvaluations(BatchScorer candidates, double[] utilities) {
+		utilityTable = model.getUtilityTable(utilityTable);
+		candidates.score(utilityTable, utilities);
+		for (int c = 0; c < candidates.size(); c++) {
+			if (utilities[c] > 1) {
+				utilities[c] = 1;
+			}
+		}
+	}
+	
+	/**
+	 * Store the estimated utility of each value of each issue for opponent, multiplied by the weight of the issue.
+	 * 
+	 * @param table: table to fill, or null to allocate one.
+	 * @return the filled table
+	 */
+	public double[][] getUtilityTable(double[][] table) {
+		return model.getUtilityTable(table);
+	}
+	
+	/**
+	 * @return estimated weight of the issue for the opponent, straight from the model
+	 */
+	@Override
+	public double getWeight(Issue issue) {
+		for (int i = 0; i < model.getIssueCount(); i++) {
+			if (model.getIssue(i).getNumber() == issue.getNumber()) {
+				return model.getWeight(i);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return estimated weight of each issue for the opponent, in the order of the domain
+	 */
+	@Override
+	public double[] getIssueWeights() {
+		double[] weights = new double[model.getIssueCount()];
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = model.getWeight(i);
+		}
+		return weights;
+	}
+
+	/**
+	 * Build the opponent utility space from the current weights and value counts, unless it is built already since the last update. 
+	 * This copies our own utility space, so it should not be called in every round.
+	 * 
+	 * @return estimated utility space of the opponent
+	 */
+	@Override
+	public AdditiveUtilitySpace getOpponentUtilitySpace() {
+		if (opponentUtilitySpace != null && spaceVersion == version) {
+			return opponentUtilitySpace;
+		}
+		AdditiveUtilitySpace space = (AdditiveUtilitySpace) negotiationSession.getUtilitySpace().copy();
+		try {
+			for (int i = 0; i < model.getIssueCount(); i++) {
+				IssueDiscrete issue = model.getIssue(i);
+				EvaluatorDiscrete eva = (EvaluatorDiscrete) space.getEvaluator(issue);
+				space.unlock(issue);
+				eva.setWeight(model.getWeight(i));
+				for (int v = 0; v < issue.getNumberOfValues(); v++) {
+					eva.setEvaluation(issue.getValue(v), model.getCount(i, v));
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		opponentUtilitySpace = space;
+		spaceVersion = version;
+		return space;
+	}
 
 	@Override
 	public String getName() {
@@ -133,13 +225,14 @@ public class Group13_OM extends OpponentModel {
 	}
 	
 	/**
-	 * There is no parameter in OMS. 
+	 * The learning rate is the weight added in total to the issues unchanged between two opponent bids.
 	 * 
-	 * @return An empty hashset.
+	 * @return set of parameters
 	 */
 	@Override
 	public Set<BOAparameter> getParameterSpec() {
 		Set<BOAparameter> set = new HashSet<BOAparameter>();
+		set.add(new BOAparameter("l", 0.25, "Learning rate of the issue weights"));
 		return set;
 	}
 }
\ No newline at end of file
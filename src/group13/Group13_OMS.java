@@ -23,6 +23,19 @@ import genius.core.boaframework.OpponentModel;
  */
 public class Group13_OMS extends OMStrategy {
 
+	// Time after which the opponent model is not updated any more, set by parameter t
+	private double updateThreshold = 1.1;
+	// Random generator to pick a bid when the model is not updated, seeded from the session
+	private Random random;
+	// Utility of each candidate bid for opponent, reused between calls
+	private double[] utilities = new double[0];
+	// Utilities of bids shared with the other components of the session
+	private UtilityCache utilityCache;
+	// Candidate bids as a matrix of value indices, reused between calls
+	private BatchScorer candidates;
+	// Latency of getBid
+	private Instrumentation.Probe bidProbe;
+
 	/**
 	 * Initialize OMStrategy with given input. 
 	 * 
@@ -33,6 +46,12 @@ public class Group13_OMS extends OMStrategy {
 	@Override
 	public void init(NegotiationSession negotiationSession, OpponentModel model, Map<String, Double> parameters) {
 		super.init(negotiationSession, model, parameters);
+		this.updateThreshold = BoaParameters.get(parameters, "t", 1.1);
+		SessionContext context = SessionContext.of(negotiationSession, model, null);
+		this.random = context.getRandom();
+		this.utilityCache = context.getUtilityCache();
+		this.candidates = new BatchScorer(new BidCodec(negotiationSession.getUtilitySpace().getDomain()), 64);
+		this.bidProbe = context.getInstrumentation().probe("Group13_OMS.getBid", "ns");
 	}
 
 	/**
@@ -44,6 +63,16 @@ public class Group13_OMS extends OMStrategy {
 	 */
 	@Override
 	public BidDetails getBid(List<BidDetails> allBids) {
+		long start = bidProbe.start();
+		BidDetails bid = pickBid(allBids);
+		bidProbe.stop(start);
+		return bid;
+	}
+	
+	/**
+	 * Body of getBid, measured by the probe.
+	 */
+	private BidDetails pickBid(List<BidDetails> allBids) {
 
 		// Return the only bid given.
 		if (allBids.size() == 1) {
@@ -52,41 +81,54 @@ public class Group13_OMS extends OMStrategy {
 		
 		// Return a random bid from list if model is not updated.
 		if (model instanceof NoModel) {
-			Random r = new Random();
-			return allBids.get(r.nextInt(allBids.size()));
+			return allBids.get(random.nextInt(allBids.size()));
 		}
 		
-		// Return the bid with highest utility that calculated by our model. 
+		// Return the bid with highest utility that calculated by our model, evaluating each bid once.
+		// Our own model evaluates the whole list one issue at a time, which is cheaper than looking each bid up in the cache.
+		boolean batch = model instanceof Group13_OM;
+		if (batch) {
+			if (utilities.length < allBids.size()) {
+				utilities = new double[allBids.size()];
+			}
+			candidates.clear();
+			for (BidDetails bid : allBids) {
+				candidates.add(bid.getBid());
+			}
+			((Group13_OM) model).getBidEvaluations(candidates, utilities);
+		}
 		double utility = Integer.MIN_VALUE;
-		BidDetails res = null;
-		for (BidDetails bid : allBids) {
-			if (model.getBidEvaluation(bid.getBid()) > utility) {
-				utility = model.getBidEvaluation(bid.getBid());
-				res = bid;
+		int res = -1;
+		for (int i = 0; i < allBids.size(); i++) {
+			double evaluation = batch ? utilities[i] : utilityCache.getOpponentUtility(model, allBids.get(i).getBid());
+			if (evaluation > utility) {
+				utility = evaluation;
+				res = i;
 			}
 		}
-		return res;
+		return res < 0 ? null : allBids.get(res);
 	}
 
 	/**
 	 * Since we would like to update our model during the whole negotiationSession,
-	 * this method will always return true. 
+	 * by default this method always returns true. 
 	 * 
 	 * @return true if model may be updated.
 	 */
 	@Override
 	public boolean canUpdateOM() {
-		return true;
+		return negotiationSession.getTime() < updateThreshold;
 	}
 
 	/**
-	 * There is no parameter in OMS. 
+	 * The update threshold is the time after which the opponent model is not updated any more, by default never.
 	 * 
-	 * @return An empty hashset.
+	 * @return set of parameters
 	 */
 	@Override
 	public Set<BOAparameter> getParameterSpec() {
 		Set<BOAparameter> set = new HashSet<BOAparameter>();
+		set.add(new BOAparameter("t", 1.1, "Time after which the OM should not be updated"));
 		return set;
 	}
 
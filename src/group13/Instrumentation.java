@@ -0,0 +1,181 @@
+package group13;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import genius.core.boaframework.NegotiationSession;
+
+/**
+ * Per-call measurements of the components of agent NiceHardHeaded of group 13 of Multi-Agent Systems project within one negotiation session,
+ * shared by the components through their {@link SessionContext}.
+ * Each component method is a {@link Probe} recording its latency in a {@link LatencyHistogram} and, where the JVM counts them,
+ * the bytes it allocated. Probes can also record other values, like the number of bids scanned by one call.
+ *
+ * Measuring is off unless the JVM runs with -Dgroup13.instrumentation=true, and then costs two reads of the clock and of the allocation counter per call.
+ * While it is off every probe is one shared probe that records nothing, so no histogram is allocated.
+ * At the end of the session the summary is appended to the file given by -Dgroup13.instrumentation.file,
+ * by default log/group13-instrumentation.csv next to the tournament logs.
+ */
+public class Instrumentation {
+
+	// Whether probes measure anything
+	public static final boolean ENABLED = Boolean.getBoolean("group13.instrumentation");
+	// File the session summaries are appended to
+	private static final String FILE = System.getProperty("group13.instrumentation.file", "log/group13-instrumentation.csv");
+	private static final String HEADER = "time;session;profile;probe;unit;calls;mean;p50;p90;p99;max;bytes/call";
+	// Probe given for every name while measuring is off
+	private static final Probe DISABLED = new Probe("ns", false);
+	// Number of sessions instrumented by this JVM
+	private static final AtomicInteger sessionCount = new AtomicInteger();
+	// Counter of allocated bytes, or null if the JVM has none
+	private static final com.sun.management.ThreadMXBean allocations = allocationCounter();
+
+	private final NegotiationSession negotiationSession;
+	private final int number = ENABLED ? sessionCount.incrementAndGet() : 0;
+	private final Map<String, Probe> probes = new LinkedHashMap<String, Probe>();
+
+	public Instrumentation(NegotiationSession negotiationSession) {
+		this.negotiationSession = negotiationSession;
+	}
+
+	/**
+	 * @param name: name of the probe.
+	 * @param unit: unit of the recorded values, "ns" for latencies.
+	 * @return the probe with the given name, created on first use, or a probe that records nothing if measuring is off
+	 */
+	public Probe probe(String name, String unit) {
+		if (!ENABLED) {
+			return DISABLED;
+		}
+		Probe probe = probes.get(name);
+		if (probe == null) {
+			probe = new Probe(unit, true);
+			probes.put(name, probe);
+		}
+		return probe;
+	}
+
+	/**
+	 * Append one line per probe to the summary file. Nothing is written if measuring is off.
+	 */
+	public void export() {
+		if (!ENABLED || probes.isEmpty()) {
+			return;
+		}
+		String time = new Date().toString();
+		String profile = negotiationSession.getUtilitySpace() == null ? "" : String.valueOf(negotiationSession.getUtilitySpace().getFileName());
+		profile = new File(profile).getName();
+		synchronized (Instrumentation.class) {
+			File file = new File(FILE);
+			boolean header = !file.exists();
+			if (file.getParentFile() != null) {
+				file.getParentFile().mkdirs();
+			}
+			PrintWriter out = null;
+			try {
+				out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+				if (header) {
+					out.println(HEADER);
+				}
+				for (Map.Entry<String, Probe> entry : probes.entrySet()) {
+					out.println(time + ";" + number + ";" + profile + ";" + entry.getKey() + ";" + entry.getValue());
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			} finally {
+				if (out != null) {
+					out.close();
+				}
+			}
+		}
+	}
+
+	private static com.sun.management.ThreadMXBean allocationCounter() {
+		try {
+			ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+			if (threads instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+				if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+					return counter;
+				}
+			}
+		} catch (Throwable e) {
+			// No allocation counts on this JVM
+		}
+		return null;
+	}
+
+	private static long allocatedBytes() {
+		return allocations == null ? 0 : allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Measurement of one component method. A call is measured as
+	 * long start = probe.start(); ... probe.stop(start);
+	 */
+	public static class Probe {
+
+		private final String unit;
+		// Recorded values, null for the probe that records nothing
+		private final LatencyHistogram histogram;
+		// Allocated bytes of the thread when the running call started, and in total over all calls
+		private long startBytes, bytes;
+
+		private Probe(String unit, boolean recording) {
+			this.unit = unit;
+			this.histogram = recording ? new LatencyHistogram() : null;
+		}
+
+		/**
+		 * @return start time of the call, to be passed to stop
+		 */
+		public long start() {
+			if (histogram == null) {
+				return 0;
+			}
+			startBytes = allocatedBytes();
+			return System.nanoTime();
+		}
+
+		public void stop(long start) {
+			if (histogram == null) {
+				return;
+			}
+			long end = System.nanoTime();
+			bytes += allocatedBytes() - startBytes;
+			histogram.record(end - start);
+		}
+
+		/**
+		 * Record another value than the latency of a call.
+		 */
+		public void record(long value) {
+			if (histogram != null) {
+				histogram.record(value);
+			}
+		}
+
+		/**
+		 * @return recorded values, an empty histogram if measuring is off
+		 */
+		public LatencyHistogram getHistogram() {
+			return histogram == null ? new LatencyHistogram() : histogram;
+		}
+
+		@Override
+		public String toString() {
+			String bytesPerCall = allocations == null || !unit.equals("ns") ? "" : String.format("%.1f", bytes / (double) Math.max(1, histogram.getCount()));
+			return unit + ";" + histogram.getCount() + ";" + String.format("%.1f", histogram.getMean()) + ";" + histogram.getPercentile(0.5) + ";"
+					+ histogram.getPercentile(0.9) + ";" + histogram.getPercentile(0.99) + ";" + histogram.getMax() + ";" + bytesPerCall;
+		}
+	}
+}
@@ -0,0 +1,309 @@
+package group13;
+
+import java.util.ArrayDeque;
+
+import genius.core.Bid;
+import genius.core.bidding.BidDetails;
+import genius.core.utility.AdditiveUtilitySpace;
+
+/**
+ * Outcome space of agent NiceHardHeaded of group 13 of Multi-Agent Systems project for domains too large to enumerate.
+ * Only the weighted utility of each value of each issue is stored, and the values of each issue are sorted by it.
+ * Bids in a utility range are generated on demand by a depth-first branch and bound over the issues:
+ * a branch is cut as soon as the highest or lowest utility its remaining issues can add cannot reach the range.
+ * A narrow range in a large domain can still take many branches to find a bid, so the search looks at the clock
+ * every few hundred branches and gives up at the deadline of the cursor.
+ * Startup time and memory depend on the number of values, not on the number of outcomes.
+ */
+public class LazyOutcomeSpace implements OutcomeSource {
+
+	// Encoding of the bids of the domain
+	private final BidCodec codec;
+	// Number of issues
+	private final int issueCount;
+	// Weighted utility of each value of each issue
+	private final double[][] utilities;
+	// Value indices of each issue sorted by descending utility
+	private final int[][] order;
+	// Highest and lowest utility the issues from position i to the last issue can add together
+	private final double[] maxRest, minRest;
+	// Maximum number of bids a cursor generates for one widening
+	private final int maxBidsPerWidening;
+	// Time budget of finding a bid near a utility, in nanoseconds
+	private final long NEAR_BUDGET_NANOS = 20000000L;
+	// Number of branches between two looks at the clock, minus one
+	private static final int CLOCK_MASK = 255;
+
+	/**
+	 * @param utilitySpace: our own additive utility space.
+	 * @param maxBidsPerWidening: maximum number of bids a cursor generates for one widening.
+	 */
+	public LazyOutcomeSpace(AdditiveUtilitySpace utilitySpace, int maxBidsPerWidening) {
+		this.codec = new BidCodec(utilitySpace.getDomain());
+		this.issueCount = codec.getIssueCount();
+		this.maxBidsPerWidening = maxBidsPerWidening;
+		utilities = BatchScorer.getUtilityTable(utilitySpace, codec);
+		order = new int[issueCount][];
+		for (int i = 0; i < issueCount; i++) {
+			order[i] = sortDescending(utilities[i]);
+		}
+		maxRest = new double[issueCount + 1];
+		minRest = new double[issueCount + 1];
+		for (int i = issueCount - 1; i >= 0; i--) {
+			maxRest[i] = maxRest[i + 1] + utilities[i][order[i][0]];
+			minRest[i] = minRest[i + 1] + utilities[i][order[i][order[i].length - 1]];
+		}
+	}
+
+	@Override
+	public BidDetails getMaxBid() {
+		int[] values = new int[issueCount];
+		for (int i = 0; i < issueCount; i++) {
+			values[i] = order[i][0];
+		}
+		return toBidDetails(values);
+	}
+
+	@Override
+	public BidDetails getMinBid() {
+		int[] values = new int[issueCount];
+		for (int i = 0; i < issueCount; i++) {
+			values[i] = order[i][order[i].length - 1];
+		}
+		return toBidDetails(values);
+	}
+
+	/**
+	 * Search a band around the utility, doubling its width until it contains a bid,
+	 * and return the closest of the first bids found in it.
+	 * Once the time budget is spent, each band is only searched briefly, and a wide band finds a bid in its first branches.
+	 */
+	@Override
+	public BidDetails getBidNearUtility(double utility) {
+		long deadline = System.nanoTime() + NEAR_BUDGET_NANOS;
+		double width = 0.005;
+		while (true) {
+			Band band = new Band(utility - width, true, utility + width, true);
+			BidDetails nearest = null;
+			for (int i = 0; i < maxBidsPerWidening; i++) {
+				BidDetails bid = band.next(deadline);
+				if (bid == null) {
+					break;
+				}
+				if (nearest == null || Math.abs(bid.getMyUndiscountedUtil() - utility) < Math.abs(nearest.getMyUndiscountedUtil() - utility)) {
+					nearest = bid;
+				}
+			}
+			if (nearest != null) {
+				return nearest;
+			}
+			if (utility - width <= minRest[0] && utility + width >= maxRest[0]) {
+				return getMaxBid();
+			}
+			width *= 2;
+		}
+	}
+
+	@Override
+	public Cursor cursor(double lower, double upper) {
+		LazyCursor cursor = new LazyCursor();
+		cursor.widen(lower, upper);
+		return cursor;
+	}
+
+	/**
+	 * @return utility of the encoded bid
+	 */
+	public double getUtility(int[] values) {
+		double utility = 0;
+		for (int i = 0; i < issueCount; i++) {
+			utility += utilities[i][values[i]];
+		}
+		return utility;
+	}
+
+	private BidDetails toBidDetails(int[] values) {
+		return new BidDetails(codec.decode(values), getUtility(values));
+	}
+
+	/**
+	 * @return indices of the array sorted by descending value
+	 */
+	private static int[] sortDescending(double[] values) {
+		int[] sorted = new int[values.length];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = i;
+		}
+		// Insertion sort, issues have few values
+		for (int i = 1; i < sorted.length; i++) {
+			int current = sorted[i];
+			int j = i - 1;
+			while (j >= 0 && values[sorted[j]] < values[current]) {
+				sorted[j + 1] = sorted[j];
+				j--;
+			}
+			sorted[j + 1] = current;
+		}
+		return sorted;
+	}
+
+	/**
+	 * Cursor over a utility range which only grows.
+	 * Each widening adds a slice below and a slice above the old range, and generates at most maxBidsPerWidening bids.
+	 * Slices that are not generated completely, because of that limit or the deadline, stay pending and are continued
+	 * after the next widening, before its own slices, since they are closer to the target.
+	 */
+	private class LazyCursor implements Cursor {
+
+		// Utility range covered so far, empty before the first widening
+		private double low, high;
+		private boolean empty = true;
+		// Slices added by widenings and not generated completely, in the order they were added
+		private final ArrayDeque<Band> bands = new ArrayDeque<Band>();
+		// Number of bids generated since the last widening
+		private int generated;
+		// System.nanoTime() at which the search of the slices stops
+		private long deadline = Long.MAX_VALUE;
+
+		@Override
+		public boolean widen(double lower, double upper) {
+			boolean changed = true;
+			if (empty) {
+				bands.addLast(new Band(lower, true, upper, true));
+				low = lower;
+				high = upper;
+				empty = false;
+			} else {
+				changed = lower < low || upper > high;
+				if (lower < low) {
+					bands.addLast(new Band(lower, true, low, false));
+				}
+				if (upper > high) {
+					bands.addLast(new Band(high, false, upper, true));
+				}
+				low = Math.min(low, lower);
+				high = Math.max(high, upper);
+			}
+			generated = 0;
+			return changed;
+		}
+
+		@Override
+		public BidDetails next() {
+			if (generated >= maxBidsPerWidening) {
+				return null;
+			}
+			while (!bands.isEmpty()) {
+				Band band = bands.peekFirst();
+				BidDetails bid = band.next(deadline);
+				if (bid != null) {
+					generated++;
+					return bid;
+				}
+				if (!band.isDone()) {
+					// Deadline passed, the band is continued later
+					return null;
+				}
+				bands.pollFirst();
+			}
+			return null;
+		}
+
+		@Override
+		public boolean isComplete() {
+			return low <= minRest[0] && high >= maxRest[0];
+		}
+
+		@Override
+		public void setDeadline(long deadline) {
+			this.deadline = deadline;
+		}
+	}
+
+	/**
+	 * Depth-first generation of all bids with utility within a band, without recursion.
+	 * Values of each issue are tried from high to low utility,
+	 * so once a value cannot reach the lower bound, neither can the remaining values of that issue.
+	 */
+	private class Band {
+
+		private final double lower, upper;
+		private final boolean lowerInclusive, upperInclusive;
+		// Position in order of the value tried at each depth
+		private final int[] position;
+		// Utility of the values chosen before each depth
+		private final double[] partial;
+		// Value index chosen at each depth
+		private final int[] values;
+		private int depth;
+		// Number of branches tried so far
+		private long branches;
+
+		private Band(double lower, boolean lowerInclusive, double upper, boolean upperInclusive) {
+			this.lower = lower;
+			this.upper = upper;
+			this.lowerInclusive = lowerInclusive;
+			this.upperInclusive = upperInclusive;
+			this.position = new int[issueCount];
+			this.partial = new double[issueCount + 1];
+			this.values = new int[issueCount];
+			this.depth = issueCount == 0 ? -1 : 0;
+		}
+
+		/**
+		 * @param deadline: System.nanoTime() at which the search stops, and can be continued by a later call.
+		 * @return next bid within the band, or null if all of them are generated or the deadline passed
+		 */
+		private BidDetails next(long deadline) {
+			while (depth >= 0) {
+				if ((++branches & CLOCK_MASK) == 0 && System.nanoTime() >= deadline) {
+					return null;
+				}
+				if (position[depth] >= order[depth].length) {
+					// All values of this issue are tried, go back to the previous issue
+					depth--;
+					if (depth >= 0) {
+						position[depth]++;
+					}
+					continue;
+				}
+				int value = order[depth][position[depth]];
+				double utility = partial[depth] + utilities[depth][value];
+				if (belowLower(utility + maxRest[depth + 1])) {
+					// Remaining values of this issue are even lower
+					position[depth] = order[depth].length;
+					continue;
+				}
+				if (aboveUpper(utility + minRest[depth + 1])) {
+					position[depth]++;
+					continue;
+				}
+				values[depth] = value;
+				if (depth == issueCount - 1) {
+					position[depth]++;
+					Bid bid = codec.decode(values);
+					return new BidDetails(bid, utility);
+				}
+				partial[depth + 1] = utility;
+				depth++;
+				position[depth] = 0;
+			}
+			return null;
+		}
+
+		/**
+		 * @return true if all bids within the band are generated
+		 */
+		private boolean isDone() {
+			return depth < 0;
+		}
+
+		private boolean belowLower(double utility) {
+			return lowerInclusive ? utility < lower : utility <= lower;
+		}
+
+		private boolean aboveUpper(double utility) {
+			return upperInclusive ? utility > upper : utility >= upper;
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package group13;
+
+import java.util.List;
+
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.utility.AbstractUtilitySpace;
+
+/**
+ * Statistics of the bids received from the opponent in a negotiation session of agent NiceHardHeaded of group 13 of Multi-Agent Systems project,
+ * kept in the {@link SessionContext} of the session.
+ * Each received bid is taken once, in constant time, so the statistics never scan the opponent history:
+ * the lowest utility of the received bids for us and the time it was received.
+ */
+public class OpponentStats {
+
+	private final NegotiationSession negotiationSession;
+	// Utilities of bids shared with the other components of the session
+	private final UtilityCache utilityCache;
+	// Utility space the statistics are computed with
+	private AbstractUtilitySpace utilitySpace;
+	// Number of received bids taken into the statistics
+	private int count;
+	private double minUtility;
+	// Time the bid with the lowest utility for us was received
+	private double minUtilityTime;
+
+	public OpponentStats(NegotiationSession negotiationSession, UtilityCache utilityCache) {
+		this.negotiationSession = negotiationSession;
+		this.utilityCache = utilityCache;
+		this.utilitySpace = negotiationSession.getUtilitySpace();
+	}
+
+	/**
+	 * Take the bids received since the last update. The statistics are computed again from the start of the history
+	 * only if the session gets another utility space.
+	 */
+	public void update() {
+		if (negotiationSession.getUtilitySpace() != utilitySpace) {
+			utilitySpace = negotiationSession.getUtilitySpace();
+			clear();
+		}
+		List<BidDetails> history = negotiationSession.getOpponentBidHistory().getHistory();
+		for (int i = count; i < history.size(); i++) {
+			add(history.get(i));
+		}
+	}
+
+	private void add(BidDetails bid) {
+		double utility = utilityCache.getUtility(bid.getBid());
+		if (count == 0 || utility < minUtility) {
+			minUtility = utility;
+			minUtilityTime = bid.getTime();
+		}
+		count++;
+	}
+
+	private void clear() {
+		count = 0;
+	}
+
+	/**
+	 * @return number of received bids
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return lowest utility for us of the received bids, 1 if no bid is received yet
+	 */
+	public double getMinUtility() {
+		return count == 0 ? 1 : minUtility;
+	}
+
+	/**
+	 * @return time the bid with the lowest utility for us was received, 0 if no bid is received yet
+	 */
+	public double getMinUtilityTime() {
+		return count == 0 ? 0 : minUtilityTime;
+	}
+}
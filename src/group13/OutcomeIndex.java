@@ -0,0 +1,270 @@
+package group13;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import genius.core.Bid;
+import genius.core.bidding.BidDetails;
+import genius.core.utility.AbstractUtilitySpace;
+
+/**
+ * Outcome space of agent NiceHardHeaded of group 13 of Multi-Agent Systems project, sorted by our own utility.
+ * Utilities are stored in a primitive array in ascending order, so a range query is two binary searches
+ * and the bids in the range are simply the positions between them.
+ * A {@link Window} keeps track of the positions already visited, so a range can be widened without scanning old bids again.
+ * The domain is enumerated by value indices, so every bid is also kept encoded, as a matrix of value indices in the same order,
+ * and can be scored by a {@link BatchScorer} without looking up its values again.
+ */
+public class OutcomeIndex implements OutcomeSource {
+
+	// All bids in the domain, ascending by utility
+	private final BidDetails[] bids;
+	// Utility of each bid, same order as bids
+	private final double[] utilities;
+	// Encoding of the bids of the domain
+	private final BidCodec codec;
+	// Value index of each bid, one row per issue, same order as bids
+	private final int[][] values;
+
+	/**
+	 * Enumerate the whole domain once by value indices and sort it by utility.
+	 * An additive utility space is evaluated in its compiled form, straight from the value indices.
+	 *
+	 * @param utilitySpace: our own utility space.
+	 * @throws IllegalArgumentException if the domain has too many bids to enumerate
+	 */
+	public OutcomeIndex(AbstractUtilitySpace utilitySpace) {
+		codec = new BidCodec(utilitySpace.getDomain());
+		int issueCount = codec.getIssueCount();
+		long count = 1;
+		for (int i = 0; i < issueCount; i++) {
+			count *= codec.getValueCount(i);
+			if (count > Integer.MAX_VALUE - 8) {
+				throw new IllegalArgumentException("Domain " + utilitySpace.getDomain().getName() + " has too many bids to enumerate");
+			}
+		}
+		CompiledUtility compiled = CompiledUtility.of(utilitySpace, codec);
+		final BidDetails[] all = new BidDetails[(int) count];
+		int[][] allValues = new int[issueCount][all.length];
+		int[] bid = new int[issueCount];
+		for (int b = 0; b < all.length; b++) {
+			Bid decoded = codec.decode(bid);
+			all[b] = new BidDetails(decoded, compiled != null ? compiled.getUtility(bid) : utilitySpace.getUtility(decoded));
+			for (int i = 0; i < issueCount; i++) {
+				allValues[i][b] = bid[i];
+			}
+			// Next bid, with the last issue as least significant digit
+			for (int i = issueCount - 1; i >= 0 && ++bid[i] == codec.getValueCount(i); i--) {
+				bid[i] = 0;
+			}
+		}
+		Integer[] order = new Integer[all.length];
+		for (int b = 0; b < order.length; b++) {
+			order[b] = b;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(all[a].getMyUndiscountedUtil(), all[b].getMyUndiscountedUtil());
+			}
+		});
+		bids = new BidDetails[all.length];
+		utilities = new double[all.length];
+		values = new int[issueCount][all.length];
+		for (int position = 0; position < bids.length; position++) {
+			bids[position] = all[order[position]];
+			utilities[position] = bids[position].getMyUndiscountedUtil();
+			for (int i = 0; i < issueCount; i++) {
+				values[i][position] = allValues[i][order[position]];
+			}
+		}
+	}
+
+	/**
+	 * @return number of bids in the domain
+	 */
+	public int size() {
+		return bids.length;
+	}
+
+	/**
+	 * @return bid at given position, position 0 has the lowest utility
+	 */
+	public BidDetails get(int position) {
+		return bids[position];
+	}
+
+	/**
+	 * @return utility of bid at given position
+	 */
+	public double getUtility(int position) {
+		return utilities[position];
+	}
+
+	/**
+	 * @return encoding of the bids of the domain
+	 */
+	public BidCodec getCodec() {
+		return codec;
+	}
+
+	/**
+	 * @return value index of each bid, one row per issue and one column per position. Shared, so it must not be modified
+	 */
+	public int[][] getValues() {
+		return values;
+	}
+
+	@Override
+	public BidDetails getMaxBid() {
+		return bids[bids.length - 1];
+	}
+
+	@Override
+	public BidDetails getMinBid() {
+		return bids[0];
+	}
+
+	/**
+	 * Find the first position whose utility is not smaller than given utility.
+	 *
+	 * @return position in [0, size]
+	 */
+	public int lowerIndex(double utility) {
+		int low = 0, high = utilities.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (utilities[mid] < utility) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Find the first position whose utility is larger than given utility.
+	 *
+	 * @return position in [0, size]
+	 */
+	public int upperIndex(double utility) {
+		int low = 0, high = utilities.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (utilities[mid] <= utility) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Return the bid whose utility is closest to the given utility.
+	 *
+	 * @return bid near given utility
+	 */
+	@Override
+	public BidDetails getBidNearUtility(double utility) {
+		int position = lowerIndex(utility);
+		if (position == bids.length) {
+			return bids[bids.length - 1];
+		}
+		if (position > 0 && utility - utilities[position - 1] < utilities[position] - utility) {
+			return bids[position - 1];
+		}
+		return bids[position];
+	}
+
+	/**
+	 * Open a window over all bids with utility in [lower, upper].
+	 *
+	 * @return window whose bids are not visited yet
+	 */
+	@Override
+	public Window cursor(double lower, double upper) {
+		Window window = new Window(lowerIndex(lower));
+		window.widen(lower, upper);
+		return window;
+	}
+
+	/**
+	 * Range of positions [low, high) in the index which only grows.
+	 * After each widening, {@link #nextPosition()} returns the positions that were added by it,
+	 * so every bid is visited at most once however often the range is widened.
+	 * Positions below the old range are visited downwards and positions above it upwards, so the positions not visited yet
+	 * are next to the old range, and stay pending as part of the slices of the next widening.
+	 */
+	public class Window implements Cursor {
+
+		// Positions covered so far
+		private int low, high;
+		// Positions added by widenings and not visited yet, one slice below and one slice above
+		private int belowFrom, belowTo, aboveFrom, aboveTo;
+
+		private Window(int start) {
+			low = start;
+			high = start;
+			belowFrom = belowTo = aboveFrom = aboveTo = start;
+		}
+
+		/**
+		 * Widen the window so that it covers [lower, upper]. The window never shrinks.
+		 * Positions of earlier widenings that are not visited yet stay pending.
+		 *
+		 * @return true if new positions are added
+		 */
+		@Override
+		public boolean widen(double lower, double upper) {
+			int newLow = Math.min(low, lowerIndex(lower));
+			int newHigh = Math.max(high, upperIndex(upper));
+			boolean changed = newLow < low || newHigh > high;
+			belowFrom = newLow;
+			aboveTo = newHigh;
+			low = newLow;
+			high = newHigh;
+			return changed;
+		}
+
+		/**
+		 * @return next position added to the window and not visited yet, or -1 if all of them are visited
+		 */
+		public int nextPosition() {
+			if (belowFrom < belowTo) {
+				return --belowTo;
+			}
+			if (aboveFrom < aboveTo) {
+				return aboveFrom++;
+			}
+			return -1;
+		}
+
+		@Override
+		public BidDetails next() {
+			int position = nextPosition();
+			return position < 0 ? null : bids[position];
+		}
+
+		@Override
+		public boolean isComplete() {
+			return low == 0 && high == bids.length;
+		}
+
+		/**
+		 * Every position of the window is a bid, so the window never runs long enough to need a deadline.
+		 */
+		@Override
+		public void setDeadline(long deadline) {
+		}
+
+		public int getLow() {
+			return low;
+		}
+
+		public int getHigh() {
+			return high;
+		}
+	}
+}
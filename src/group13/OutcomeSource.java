@@ -0,0 +1,64 @@
+package group13;
+
+import genius.core.bidding.BidDetails;
+
+/**
+ * Source of bids of our own utility space that can be searched by utility range,
+ * used by the bidding strategy of agent NiceHardHeaded of group 13 of Multi-Agent Systems project.
+ * {@link OutcomeIndex} enumerates the whole domain, {@link LazyOutcomeSpace} generates bids on demand for large domains.
+ */
+public interface OutcomeSource {
+
+	/**
+	 * @return the bid with the highest utility
+	 */
+	BidDetails getMaxBid();
+
+	/**
+	 * @return the bid with the lowest utility
+	 */
+	BidDetails getMinBid();
+
+	/**
+	 * @return a bid whose utility is close to the given utility
+	 */
+	BidDetails getBidNearUtility(double utility);
+
+	/**
+	 * Open a cursor over the bids with utility in [lower, upper].
+	 *
+	 * @return cursor whose bids are not visited yet
+	 */
+	Cursor cursor(double lower, double upper);
+
+	/**
+	 * Utility range which only grows. 
+	 * After each widening, {@link #next()} returns the bids that were added by it, so each bid is visited at most once.
+	 * Bids of earlier widenings that were not visited yet stay pending, and are returned after the next widening as well.
+	 */
+	interface Cursor {
+
+		/**
+		 * Widen the range so that it covers [lower, upper]. The range never shrinks.
+		 *
+		 * @return true if the range is changed
+		 */
+		boolean widen(double lower, double upper);
+
+		/**
+		 * @return next bid added to the range and not visited yet, or null if there is none for now
+		 */
+		BidDetails next();
+
+		/**
+		 * @return true if the range covers all bids
+		 */
+		boolean isComplete();
+
+		/**
+		 * Stop looking for bids once System.nanoTime() passes the deadline, after which {@link #next()} returns null
+		 * until a later deadline is set. Bids not visited yet stay pending.
+		 */
+		void setDeadline(long deadline);
+	}
+}
@@ -0,0 +1,194 @@
+package group13;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import genius.core.bidding.BidDetails;
+
+/**
+ * Pareto frontier of agent NiceHardHeaded of group 13 of Multi-Agent Systems project over our own utility and the opponent utility estimated by {@link Group13_OM}.
+ * The frontier is found by a skyline pass over the outcome index from our best bid down:
+ * a bid is on the frontier if it gives the opponent more than every bid that gives us more.
+ * The pass is built incrementally: it only goes as far down as the lowest own utility asked for so far,
+ * scoring the newly passed outcomes for the opponent in one batch, and continues from there when a lower utility is asked for.
+ * Since our target falls slowly, most outcomes are never scored before the frontier is computed again.
+ * The pass goes in chunks and stops between two chunks once the deadline of the caller has passed,
+ * so that only the outcomes passed so far are considered, and the next call continues it.
+ * The pass starts over only when the model has changed enough that the utility of some bid may have moved by more than the tolerance.
+ * The frontier is sorted by our own utility, so the frontier bids near a target are found by binary search.
+ */
+public class ParetoFrontier {
+
+	// Number of outcomes scored between two looks at the clock
+	private static final int PASS_CHUNK = 4096;
+
+	// All outcomes, ascending by our own utility
+	private final OutcomeIndex index;
+	// Opponent model the frontier is computed with
+	private final Group13_OM model;
+	// Largest change of the opponent utility of a bid that is ignored
+	private final double tolerance;
+	// All outcomes as the matrix of value indices of the index, in its order
+	private final BatchScorer outcomes;
+	// Opponent utility of each outcome passed, in the order of the index
+	private final double[] opponentUtilities;
+	// Opponent utility table the frontier is computed with, and the current one
+	private double[][] frontierTable, currentTable;
+	// Version of the model the frontier was last checked against
+	private int checkedVersion = -1;
+	// Frontier bids found so far, descending by our own utility, so ascending by opponent utility
+	private final List<BidDetails> frontier = new ArrayList<BidDetails>();
+	// Our own and opponent utility of each frontier bid
+	private double[] frontierUtilities = new double[0], frontierOpponentUtilities = new double[0];
+	// Position in the index down to which the skyline pass has gone, and the highest opponent utility passed
+	private int passed;
+	private double bestOpponent;
+	// Number of times the frontier was started over
+	private int builds;
+
+	/**
+	 * @param index: all outcomes, ascending by our own utility.
+	 * @param model: opponent model to estimate the opponent utility.
+	 * @param tolerance: largest change of the opponent utility of a bid that does not trigger a new frontier.
+	 */
+	public ParetoFrontier(OutcomeIndex index, Group13_OM model, double tolerance) {
+		this.index = index;
+		this.model = model;
+		this.tolerance = tolerance;
+		this.outcomes = new BatchScorer(index.getCodec(), index.getValues(), index.size());
+		this.opponentUtilities = new double[index.size()];
+	}
+
+	/**
+	 * Start the frontier over if the opponent model changed by more than the tolerance since it was last started.
+	 * The utility of any bid changes by at most the sum over the issues of the largest change of a value utility of the issue.
+	 */
+	public void refresh() {
+		if (model.getVersion() == checkedVersion) {
+			return;
+		}
+		checkedVersion = model.getVersion();
+		currentTable = model.getUtilityTable(currentTable);
+		if (frontierTable != null) {
+			double change = 0;
+			for (int i = 0; i < currentTable.length; i++) {
+				double issueChange = 0;
+				for (int v = 0; v < currentTable[i].length; v++) {
+					issueChange = Math.max(issueChange, Math.abs(currentTable[i][v] - frontierTable[i][v]));
+				}
+				change += issueChange;
+			}
+			if (change <= tolerance) {
+				return;
+			}
+		}
+		// Keep the table the frontier is computed with, and reuse the old one for the next check
+		double[][] table = frontierTable;
+		frontierTable = currentTable;
+		currentTable = table;
+		frontier.clear();
+		passed = index.size();
+		bestOpponent = Double.NEGATIVE_INFINITY;
+		builds++;
+	}
+
+	/**
+	 * Continue the skyline pass down to the first outcome with our own utility at least the given utility,
+	 * keeping each bid that gives the opponent more than all bids before it.
+	 * Of bids with equal own utility only the one best for the opponent is kept.
+	 * The pass stops early once the deadline has passed.
+	 * 
+	 * @param deadline: System.nanoTime() after which no more outcomes are scored.
+	 */
+	private void passDownTo(double utility, long deadline) {
+		int end = index.lowerIndex(utility);
+		if (frontierUtilities.length < index.size()) {
+			frontierUtilities = new double[index.size()];
+			frontierOpponentUtilities = new double[index.size()];
+		}
+		while (passed > end && System.nanoTime() < deadline) {
+			int from = Math.max(end, passed - PASS_CHUNK);
+			outcomes.score(frontierTable, opponentUtilities, from, passed);
+			for (int i = passed - 1; i >= from; i--) {
+				double opponentUtility = Math.min(1, opponentUtilities[i]);
+				if (opponentUtility <= bestOpponent) {
+					continue;
+				}
+				bestOpponent = opponentUtility;
+				int last = frontier.size() - 1;
+				if (last >= 0 && frontierUtilities[last] == index.getUtility(i)) {
+					frontier.set(last, index.get(i));
+					frontierOpponentUtilities[last] = opponentUtility;
+				} else {
+					frontierUtilities[last + 1] = index.getUtility(i);
+					frontierOpponentUtilities[last + 1] = opponentUtility;
+					frontier.add(index.get(i));
+				}
+			}
+			passed = from;
+		}
+	}
+
+	/**
+	 * @param opponentCut: opponent utility a bid must exceed to be returned.
+	 * @param deadline: System.nanoTime() after which the skyline pass stops.
+	 * @return copy of the frontier bids with our own utility within the range and an opponent utility above the cut, 
+	 * ascending by our own utility
+	 */
+	public List<BidDetails> getBids(double lower, double upper, double opponentCut, long deadline) {
+		refresh();
+		passDownTo(lower, deadline);
+		List<BidDetails> bids = new ArrayList<BidDetails>();
+		for (int i = lastAtLeast(lower); i >= 0 && frontierUtilities[i] <= upper; i--) {
+			if (frontierOpponentUtilities[i] > opponentCut) {
+				bids.add(frontier.get(i));
+			}
+		}
+		return bids;
+	}
+
+	/**
+	 * @param deadline: System.nanoTime() after which the skyline pass stops.
+	 * @return the frontier bid best for the opponent that gives us at least the utility, or the frontier bid best for us if none does
+	 */
+	public BidDetails getBidAbove(double utility, long deadline) {
+		refresh();
+		passDownTo(utility, deadline);
+		if (frontier.isEmpty()) {
+			return index.getMaxBid();
+		}
+		return frontier.get(Math.max(lastAtLeast(utility), 0));
+	}
+
+	/**
+	 * @return position of the last frontier bid with our own utility at least the given utility, or -1 if there is none
+	 */
+	private int lastAtLeast(double utility) {
+		int low = 0, high = frontier.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (frontierUtilities[mid] >= utility) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low - 1;
+	}
+
+	/**
+	 * @return number of bids on the whole frontier, which completes the skyline pass
+	 */
+	public int size() {
+		refresh();
+		passDownTo(Double.NEGATIVE_INFINITY, Long.MAX_VALUE);
+		return frontier.size();
+	}
+
+	/**
+	 * @return number of times the frontier was started over
+	 */
+	public int getBuilds() {
+		return builds;
+	}
+}
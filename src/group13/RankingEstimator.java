@@ -0,0 +1,234 @@
+package group13;
+
+import java.util.List;
+import java.util.Random;
+
+import genius.core.Bid;
+import genius.core.issue.IssueDiscrete;
+import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+
+/**
+ * Estimate of an additive utility space from a bid ranking, used by agent NiceHardHeaded of group 13 of Multi-Agent Systems project
+ * under preference uncertainty.
+ * Every value of every issue gets a score, and the score of a bid is the sum of the scores of its values.
+ * Scores are fitted by stochastic gradient descent on a pairwise logistic ranking loss,
+ * over neighbouring bids of the ranking and random pairs of it, until a time budget runs out.
+ * The range of scores of an issue then gives its weight, and the position of a value within that range its evaluation.
+ */
+public class RankingEstimator {
+
+	// Regularization of the scores
+	private final double LAMBDA = 0.0001;
+	// Initial learning rate
+	private final double LEARNING_RATE = 0.5;
+	// Maximum number of passes over the ranking
+	private final int MAX_EPOCHS = 2000;
+
+	// Encoding of the bids of the domain
+	private final BidCodec codec;
+	// Number of issues
+	private final int issueCount;
+	// Position of the first value of each issue in scores
+	private final int[] offsets;
+	// Score of each value of each issue
+	private final double[] scores;
+	// Weight of each issue and evaluation of each value, derived from the scores after fitting
+	private final double[] weights, evaluations;
+	// Encoded ranked bids, worst bid first, issueCount values per bid
+	private final int[] ranked;
+	// Number of ranked bids
+	private final int size;
+	// Number of passes done by the last fit
+	private int epochs;
+
+	/**
+	 * @param codec: encoding of the bids of the domain.
+	 * @param bidOrder: ranked bids, from worst to best.
+	 */
+	public RankingEstimator(BidCodec codec, List<Bid> bidOrder) {
+		this.codec = codec;
+		this.issueCount = codec.getIssueCount();
+		this.offsets = new int[issueCount + 1];
+		for (int i = 0; i < issueCount; i++) {
+			offsets[i + 1] = offsets[i] + codec.getValueCount(i);
+		}
+		this.scores = new double[offsets[issueCount]];
+		this.weights = new double[issueCount];
+		this.evaluations = new double[offsets[issueCount]];
+		this.size = bidOrder.size();
+		this.ranked = new int[size * issueCount];
+		int[] values = new int[issueCount];
+		for (int b = 0; b < size; b++) {
+			codec.encode(bidOrder.get(b), values);
+			System.arraycopy(values, 0, ranked, b * issueCount, issueCount);
+		}
+		normalize();
+	}
+
+	/**
+	 * Fit the scores to the ranking until the time budget runs out or the maximum number of passes is done.
+	 *
+	 * @param budgetNanos: time budget in nanoseconds.
+	 * @param random: random generator to draw pairs.
+	 */
+	public void fit(long budgetNanos, Random random) {
+		long deadline = System.nanoTime() + budgetNanos;
+		epochs = 0;
+		while (size > 1 && epochs < MAX_EPOCHS && System.nanoTime() < deadline) {
+			double rate = LEARNING_RATE / Math.sqrt(epochs + 1);
+			// Neighbours in the ranking
+			for (int b = 0; b + 1 < size; b++) {
+				step(b, b + 1, rate);
+			}
+			// Random pairs, which tie the ranking together over larger distances
+			for (int k = 0; k < size; k++) {
+				int first = random.nextInt(size), second = random.nextInt(size);
+				if (first != second) {
+					step(Math.min(first, second), Math.max(first, second), rate);
+				}
+			}
+			epochs++;
+		}
+		normalize();
+	}
+
+	/**
+	 * One gradient step on the logistic loss of the pair, where the bid of rank better should score higher than the bid of rank worse.
+	 */
+	private void step(int worse, int better, double rate) {
+		int w = worse * issueCount, b = better * issueCount;
+		double margin = 0;
+		for (int i = 0; i < issueCount; i++) {
+			margin += scores[offsets[i] + ranked[b + i]] - scores[offsets[i] + ranked[w + i]];
+		}
+		// Derivative of log(1 + exp(-margin))
+		double gradient = rate / (1 + Math.exp(margin));
+		for (int i = 0; i < issueCount; i++) {
+			int betterValue = offsets[i] + ranked[b + i], worseValue = offsets[i] + ranked[w + i];
+			if (betterValue != worseValue) {
+				scores[betterValue] += gradient - rate * LAMBDA * scores[betterValue];
+				scores[worseValue] -= gradient + rate * LAMBDA * scores[worseValue];
+			}
+		}
+	}
+
+	/**
+	 * Derive weights and evaluations from the scores.
+	 * The range of scores of an issue is its weight, the lowest score of an issue is evaluation 0 and the highest is 1.
+	 * An issue whose values all have the same score has no weight.
+	 */
+	private void normalize() {
+		double total = 0;
+		for (int i = 0; i < issueCount; i++) {
+			double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+			for (int v = offsets[i]; v < offsets[i + 1]; v++) {
+				min = Math.min(min, scores[v]);
+				max = Math.max(max, scores[v]);
+			}
+			weights[i] = max - min;
+			total += weights[i];
+			for (int v = offsets[i]; v < offsets[i + 1]; v++) {
+				evaluations[v] = max == min ? 1 : (scores[v] - min) / (max - min);
+			}
+		}
+		for (int i = 0; i < issueCount; i++) {
+			weights[i] = total == 0 ? 1.0 / issueCount : weights[i] / total;
+		}
+	}
+
+	/**
+	 * @return weight of the issue at given position, weights sum to 1
+	 */
+	public double getWeight(int issue) {
+		return weights[issue];
+	}
+
+	/**
+	 * @return evaluation in [0, 1] of a value of the issue at given position
+	 */
+	public double getEvaluation(int issue, int value) {
+		return evaluations[offsets[issue] + value];
+	}
+
+	/**
+	 * @return estimated utility of an encoded bid
+	 */
+	public double getUtility(int[] values) {
+		double utility = 0;
+		for (int i = 0; i < issueCount; i++) {
+			utility += weights[i] * evaluations[offsets[i] + values[i]];
+		}
+		return utility;
+	}
+
+	/**
+	 * @return fraction of random pairs of ranked bids which the estimate orders the same as the ranking
+	 */
+	public double getRankingAccuracy(Random random, int pairs) {
+		if (size < 2) {
+			return 1;
+		}
+		int correct = 0, counted = 0;
+		int[] first = new int[issueCount], second = new int[issueCount];
+		for (int k = 0; k < pairs; k++) {
+			int a = random.nextInt(size), b = random.nextInt(size);
+			if (a == b) {
+				continue;
+			}
+			System.arraycopy(ranked, Math.min(a, b) * issueCount, first, 0, issueCount);
+			System.arraycopy(ranked, Math.max(a, b) * issueCount, second, 0, issueCount);
+			if (getUtility(first) <= getUtility(second)) {
+				correct++;
+			}
+			counted++;
+		}
+		return counted == 0 ? 1 : correct / (double) counted;
+	}
+
+	/**
+	 * Compare the estimate with the real utility space on random bids, each bid paired with the one drawn before it.
+	 *
+	 * @return {fraction of pairs ordered the same as the real utility space, mean absolute error of utility}
+	 */
+	public double[] compare(AbstractUtilitySpace real, Random random, int samples) {
+		double error = 0;
+		int correct = 0;
+		double previousReal = 0, previousEstimate = 0;
+		for (int k = 0; k < samples; k++) {
+			Bid bid = codec.getDomain().getRandomBid(random);
+			double realUtility = real.getUtility(bid);
+			double estimate = getUtility(codec.encode(bid));
+			error += Math.abs(realUtility - estimate);
+			if (k > 0 && (realUtility - previousReal) * (estimate - previousEstimate) >= 0) {
+				correct++;
+			}
+			previousReal = realUtility;
+			previousEstimate = estimate;
+		}
+		return new double[] { samples > 1 ? correct / (double) (samples - 1) : 1, samples > 0 ? error / samples : 0 };
+	}
+
+	/**
+	 * @return number of passes over the ranking done by the last fit
+	 */
+	public int getEpochs() {
+		return epochs;
+	}
+
+	/**
+	 * @return additive utility space with the estimated weights and evaluations
+	 */
+	public AdditiveUtilitySpace toUtilitySpace() {
+		AdditiveUtilitySpaceFactory factory = new AdditiveUtilitySpaceFactory(codec.getDomain());
+		for (int i = 0; i < issueCount; i++) {
+			IssueDiscrete issue = codec.getIssue(i);
+			factory.setWeight(issue, getWeight(i));
+			for (int v = 0; v < codec.getValueCount(i); v++) {
+				factory.setUtility(issue, issue.getValue(v), getEvaluation(i, v));
+			}
+		}
+		return factory.getUtilitySpace();
+	}
+}
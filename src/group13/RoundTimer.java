@@ -0,0 +1,120 @@
+package group13;
+
+import genius.core.boaframework.NegotiationSession;
+import genius.core.timeline.DiscreteTimeline;
+import genius.core.timeline.TimeLineInfo;
+
+/**
+ * Estimate of the time one round takes in a negotiation session of agent NiceHardHeaded of group 13 of Multi-Agent Systems project,
+ * shared by the acceptance and bidding strategy through their {@link SessionContext}.
+ * The normalized time between our turns is followed by an exponentially weighted mean and variance,
+ * so a change of pace, like a slow opponent, shows within a few rounds, at a constant cost per round.
+ * The rounds left are the time left divided by the mean round time, with bounds at two standard deviations of the round time.
+ * With a deadline in rounds the rounds left are known exactly. Before the first round is measured they are {@link #UNKNOWN}.
+ */
+public class RoundTimer {
+
+	// Weight of the newest round time in the mean and variance
+	private static final double ALPHA = 0.3;
+	// Number of standard deviations of the bounds of the rounds left
+	private static final double Z = 2;
+	// Rounds left while nothing is measured yet
+	public static final double UNKNOWN = -1;
+
+	private final NegotiationSession negotiationSession;
+	// Number of opponent bids and the time at our last measured turn
+	private int lastRound = -1;
+	private double lastTime;
+	// Weighted mean and variance of the time of a round, and the number of rounds measured
+	private double mean, variance;
+	private int rounds;
+
+	public RoundTimer(NegotiationSession negotiationSession) {
+		this.negotiationSession = negotiationSession;
+	}
+
+	/**
+	 * Measure the time since our previous turn. A turn is identified by the number of opponent bids,
+	 * so calling this more than once in a turn, from several components, measures it only once.
+	 */
+	public void update() {
+		int round = negotiationSession.getOpponentBidHistory().size();
+		if (round == lastRound) {
+			return;
+		}
+		double time = negotiationSession.getTime();
+		if (lastRound >= 0) {
+			double gap = time - lastTime;
+			if (rounds == 0) {
+				mean = gap;
+				variance = 0;
+			} else {
+				double difference = gap - mean;
+				double increment = ALPHA * difference;
+				mean += increment;
+				variance = (1 - ALPHA) * (variance + difference * increment);
+			}
+			rounds++;
+		}
+		lastRound = round;
+		lastTime = time;
+	}
+
+	/**
+	 * @return true if at least one round is measured, or the deadline is in rounds
+	 */
+	public boolean hasEstimate() {
+		return rounds > 0 || getDiscreteTimeline() != null;
+	}
+
+	/**
+	 * @return weighted mean of the normalized time of a round
+	 */
+	public double getMeanGap() {
+		return mean;
+	}
+
+	/**
+	 * @return weighted standard deviation of the normalized time of a round
+	 */
+	public double getGapDeviation() {
+		return Math.sqrt(variance);
+	}
+
+	/**
+	 * @return estimated number of rounds left, or UNKNOWN if nothing is measured yet
+	 */
+	public double getRemainingRounds() {
+		return remaining(mean);
+	}
+
+	/**
+	 * @return number of rounds left if rounds get slower by two standard deviations, or UNKNOWN if nothing is measured yet
+	 */
+	public double getRemainingRoundsLower() {
+		return remaining(mean + Z * getGapDeviation());
+	}
+
+	/**
+	 * @return number of rounds left if rounds get faster by two standard deviations, or UNKNOWN if nothing is measured yet
+	 */
+	public double getRemainingRoundsUpper() {
+		return remaining(Math.max(mean - Z * getGapDeviation(), mean / 10));
+	}
+
+	private double remaining(double gap) {
+		DiscreteTimeline discrete = getDiscreteTimeline();
+		if (discrete != null) {
+			return discrete.getOwnRoundsLeft();
+		}
+		if (rounds == 0 || gap <= 0) {
+			return UNKNOWN;
+		}
+		return Math.max(0, 1 - negotiationSession.getTime()) / gap;
+	}
+
+	private DiscreteTimeline getDiscreteTimeline() {
+		TimeLineInfo timeline = negotiationSession.getTimeline();
+		return timeline instanceof DiscreteTimeline ? (DiscreteTimeline) timeline : null;
+	}
+}
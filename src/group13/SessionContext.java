@@ -0,0 +1,116 @@
+package group13;
+
+import java.util.Random;
+
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.boaframework.OfferingStrategy;
+import genius.core.boaframework.OpponentModel;
+
+/**
+ * Objects shared by the components of agent NiceHardHeaded of group 13 of Multi-Agent Systems project within one negotiation session.
+ * The context is owned by the first Group13 component initialized in the session, {@link Group13_OM} in a BOA party,
+ * and the other components find it through the opponent model or bidding strategy they are given,
+ * so it lives exactly as long as the components of the session. A component combined with components of other agents
+ * gets a context of its own.
+ */
+public class SessionContext {
+
+	private final NegotiationSession negotiationSession;
+	// Utilities of bids and measurements of the components, created on first use
+	private UtilityCache utilityCache;
+	private Instrumentation instrumentation;
+	// Time of a round, created on first use
+	private RoundTimer roundTimer;
+	// Statistics of the received bids, created on first use
+	private OpponentStats opponentStats;
+	// Fit of the concession curve of the opponent, created on first use
+	private ConcessionFit concessionFit;
+	// Random generator of the components, created on first use
+	private Random random;
+
+	public SessionContext(NegotiationSession negotiationSession) {
+		this.negotiationSession = negotiationSession;
+	}
+
+	/**
+	 * @param opponentModel: opponent model of the component, may be null.
+	 * @param offeringStrategy: bidding strategy of the component, may be null.
+	 * @return the context of the opponent model or else of the bidding strategy if it belongs to the session, otherwise a new context
+	 */
+	public static SessionContext of(NegotiationSession negotiationSession, OpponentModel opponentModel, OfferingStrategy offeringStrategy) {
+		if (opponentModel instanceof Group13_OM) {
+			SessionContext context = ((Group13_OM) opponentModel).getContext();
+			if (context != null && context.negotiationSession == negotiationSession) {
+				return context;
+			}
+		}
+		if (offeringStrategy instanceof Group13_BS) {
+			SessionContext context = ((Group13_BS) offeringStrategy).getContext();
+			if (context != null && context.negotiationSession == negotiationSession) {
+				return context;
+			}
+		}
+		return new SessionContext(negotiationSession);
+	}
+
+	public NegotiationSession getNegotiationSession() {
+		return negotiationSession;
+	}
+
+	public UtilityCache getUtilityCache() {
+		if (utilityCache == null) {
+			utilityCache = new UtilityCache(negotiationSession);
+		}
+		return utilityCache;
+	}
+
+	public Instrumentation getInstrumentation() {
+		if (instrumentation == null) {
+			instrumentation = new Instrumentation(negotiationSession);
+		}
+		return instrumentation;
+	}
+
+	public RoundTimer getRoundTimer() {
+		if (roundTimer == null) {
+			roundTimer = new RoundTimer(negotiationSession);
+		}
+		return roundTimer;
+	}
+
+	public OpponentStats getOpponentStats() {
+		if (opponentStats == null) {
+			opponentStats = new OpponentStats(negotiationSession, getUtilityCache());
+		}
+		return opponentStats;
+	}
+
+	public ConcessionFit getConcessionFit() {
+		if (concessionFit == null) {
+			concessionFit = new ConcessionFit(negotiationSession, getUtilityCache());
+		}
+		return concessionFit;
+	}
+
+	/**
+	 * The generator is seeded from the preferences of the session, so a session replayed with the same profile
+	 * draws the same values whichever thread or JVM runs it.
+	 *
+	 * @return random generator shared by the components of the session
+	 */
+	public Random getRandom() {
+		if (random == null) {
+			AbstractUtilitySpace utilitySpace = negotiationSession.getUtilitySpace();
+			long seed = 17;
+			if (utilitySpace != null) {
+				seed = 31 * seed + String.valueOf(utilitySpace.getDomain() == null ? null : utilitySpace.getDomain().getName()).hashCode();
+				seed = 31 * seed + String.valueOf(utilitySpace.getFileName()).hashCode();
+				seed = 31 * seed + Double.doubleToLongBits(utilitySpace.getDiscountFactor());
+				seed = 31 * seed + Double.doubleToLongBits(utilitySpace.getReservationValue());
+			}
+			random = new Random(seed);
+		}
+		return random;
+	}
+}
@@ -0,0 +1,128 @@
+package group13;
+
+import java.util.Arrays;
+import java.util.List;
+
+import genius.core.Bid;
+
+/**
+ * Index of the bids of a bid ranking by their values, to find the ranked bid most similar to a given bid.
+ * For each value of each issue it keeps a postings list of the ranks of the bids that contain the value.
+ * The similarity of a ranked bid is the number of values it shares with the query.
+ * A query walks the postings lists of its values from the shortest up, counting the bids it meets. Once the lists left are fewer
+ * than the best count so far, a bid not met yet cannot win any more, so the longest lists are not walked:
+ * each bid met is only looked up in them by binary search, and bids that cannot reach the best count are not looked up at all.
+ * A query thus touches the short lists and a few lookups per candidate, not every entry of the lists of its values.
+ */
+public class SimilarityIndex {
+
+	// Encoding of the bids of the domain
+	private final BidCodec codec;
+	// Number of issues
+	private final int issueCount;
+	// Position of the first value of each issue in postings
+	private final int[] offsets;
+	// Ranks of the bids containing each value, ascending
+	private final int[][] postings;
+	// Number of ranked bids
+	private final int size;
+	// Number of shared values of each ranked bid, reused and reset after each query
+	private final int[] overlap;
+	// Ranks met by the current query
+	private final int[] candidates;
+	// Encoded query, and its postings lists from the shortest to the longest, reused
+	private final int[] query;
+	private final int[][] lists;
+
+	/**
+	 * @param codec: encoding of the bids of the domain.
+	 * @param bidOrder: ranked bids, from worst to best.
+	 */
+	public SimilarityIndex(BidCodec codec, List<Bid> bidOrder) {
+		this.codec = codec;
+		this.issueCount = codec.getIssueCount();
+		this.size = bidOrder.size();
+		this.offsets = new int[issueCount + 1];
+		for (int i = 0; i < issueCount; i++) {
+			offsets[i + 1] = offsets[i] + codec.getValueCount(i);
+		}
+		int[][] encoded = new int[size][];
+		int[] lengths = new int[offsets[issueCount]];
+		for (int rank = 0; rank < size; rank++) {
+			encoded[rank] = codec.encode(bidOrder.get(rank));
+			for (int i = 0; i < issueCount; i++) {
+				lengths[offsets[i] + encoded[rank][i]]++;
+			}
+		}
+		this.postings = new int[offsets[issueCount]][];
+		for (int v = 0; v < postings.length; v++) {
+			postings[v] = new int[lengths[v]];
+			lengths[v] = 0;
+		}
+		for (int rank = 0; rank < size; rank++) {
+			for (int i = 0; i < issueCount; i++) {
+				int value = offsets[i] + encoded[rank][i];
+				postings[value][lengths[value]++] = rank;
+			}
+		}
+		this.overlap = new int[size];
+		this.candidates = new int[size];
+		this.query = new int[issueCount];
+		this.lists = new int[issueCount][];
+	}
+
+	/**
+	 * Find the ranked bid that shares the most values with the given bid. Of equally similar bids the lowest rank is returned.
+	 * Not thread safe, since the counters are reused between queries.
+	 *
+	 * @return rank of the most similar bid, or -1 if no ranked bid shares any value with it
+	 */
+	public int getClosestRank(Bid bid) {
+		codec.encode(bid, query);
+		for (int i = 0; i < issueCount; i++) {
+			int[] list = postings[offsets[i] + query[i]];
+			// Insertion sort by length, issues are few
+			int j = i - 1;
+			while (j >= 0 && lists[j].length > list.length) {
+				lists[j + 1] = lists[j];
+				j--;
+			}
+			lists[j + 1] = list;
+		}
+		// Count the bids of the short lists, a lower bound of the best similarity
+		int met = 0, walked = 0, bound = 0;
+		for (; walked < issueCount && issueCount - walked >= bound; walked++) {
+			for (int rank : lists[walked]) {
+				if (overlap[rank] == 0) {
+					candidates[met++] = rank;
+				}
+				bound = Math.max(bound, ++overlap[rank]);
+			}
+		}
+		// Complete the count of each bid that can still reach the best similarity by looking it up in the long lists
+		int best = -1, bestOverlap = 0;
+		for (int c = 0; c < met; c++) {
+			int rank = candidates[c];
+			int count = overlap[rank];
+			for (int l = walked; l < issueCount && count + issueCount - l >= Math.max(bound, bestOverlap); l++) {
+				if (Arrays.binarySearch(lists[l], rank) >= 0) {
+					count++;
+				}
+			}
+			if (count > bestOverlap || (count == bestOverlap && rank < best)) {
+				best = rank;
+				bestOverlap = count;
+			}
+			// Reset the counter touched by this query
+			overlap[rank] = 0;
+		}
+		return best;
+	}
+
+	/**
+	 * @return number of ranked bids
+	 */
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,221 @@
+package group13;
+
+import genius.core.Bid;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.boaframework.OpponentModel;
+import genius.core.utility.AbstractUtilitySpace;
+
+/**
+ * Cache of bid utilities shared by the components of agent NiceHardHeaded of group 13 of Multi-Agent Systems project within one negotiation session,
+ * through their {@link SessionContext}.
+ * The same bid is often evaluated by several components in one round, for our own utility by AS and BS,
+ * and for the opponent by BS, OMS and AS. Both utilities are kept in a direct mapped table keyed on the bid packed into a long,
+ * where a new bid simply replaces the one in its slot, so the size stays fixed.
+ * Own utilities of an additive utility space are computed by its {@link CompiledUtility}, from the same encoding as the key.
+ * Own utilities are dropped when the session gets another utility space,
+ * opponent utilities whenever the version of {@link Group13_OM} changes, that is after every update of the model.
+ */
+public class UtilityCache {
+
+	// Number of slots of each table, a power of two
+	private static final int CAPACITY = 4096;
+
+	// Session whose bids are cached
+	private final NegotiationSession negotiationSession;
+	// Encoding of the bids of the domain
+	private final BidCodec codec;
+	// Our own utility of bids
+	private final Table own = new Table(CAPACITY);
+	// Opponent utility of bids
+	private final Table opponent = new Table(CAPACITY);
+	// Utility space the own utilities are computed with, and its compiled form, null if it is not additive
+	private AbstractUtilitySpace utilitySpace;
+	private CompiledUtility compiled;
+	// Encoded bid, reused between calls
+	private final int[] values;
+	// Opponent model and its version the opponent utilities are computed with
+	private OpponentModel opponentModel;
+	private int opponentVersion;
+
+	public UtilityCache(NegotiationSession negotiationSession) {
+		this.negotiationSession = negotiationSession;
+		this.codec = new BidCodec(negotiationSession.getUtilitySpace().getDomain());
+		this.utilitySpace = negotiationSession.getUtilitySpace();
+		this.compiled = CompiledUtility.of(utilitySpace, codec);
+		this.values = new int[codec.getIssueCount()];
+	}
+
+	/**
+	 * @return our own utility of the bid, as given by the utility space of the session
+	 */
+	public double getUtility(Bid bid) {
+		AbstractUtilitySpace space = refresh();
+		if (!codec.isPackable()) {
+			own.bypass();
+			return compiled != null ? compiled.getUtility(bid) : space.getUtility(bid);
+		}
+		codec.encode(bid, values);
+		long key = codec.pack(values);
+		int slot = own.find(key);
+		if (slot < 0) {
+			slot = own.put(key, compiled != null ? compiled.getUtility(values) : space.getUtility(bid));
+		}
+		return own.values[slot];
+	}
+
+	/**
+	 * @return utility discounted to the given normalized time, the same way the utility space of the session discounts it
+	 */
+	public double discount(double utility, double time) {
+		AbstractUtilitySpace space = refresh();
+		return compiled != null ? compiled.discount(utility, time) : space.discount(utility, time);
+	}
+
+	/**
+	 * @return compiled form of the utility space of the session, null if it is not additive
+	 */
+	public CompiledUtility getCompiledUtility() {
+		refresh();
+		return compiled;
+	}
+
+	/**
+	 * Compile the utility space again and drop the own utilities if the session got another utility space.
+	 * 
+	 * @return utility space of the session
+	 */
+	private AbstractUtilitySpace refresh() {
+		AbstractUtilitySpace space = negotiationSession.getUtilitySpace();
+		if (space != utilitySpace) {
+			utilitySpace = space;
+			compiled = CompiledUtility.of(space, codec);
+			own.clear();
+		}
+		return space;
+	}
+
+	/**
+	 * @return utility of the bid for the opponent, as estimated by the model.
+	 * Only {@link Group13_OM} tells when it changes, other models are evaluated on every call.
+	 */
+	public double getOpponentUtility(OpponentModel model, Bid bid) {
+		if (!(model instanceof Group13_OM) || !codec.isPackable()) {
+			opponent.bypass();
+			return model.getBidEvaluation(bid);
+		}
+		int version = ((Group13_OM) model).getVersion();
+		if (model != opponentModel || version != opponentVersion) {
+			opponentModel = model;
+			opponentVersion = version;
+			opponent.clear();
+		}
+		long key = codec.pack(bid);
+		int slot = opponent.find(key);
+		if (slot < 0) {
+			slot = opponent.put(key, model.getBidEvaluation(bid));
+		}
+		return opponent.values[slot];
+	}
+
+	/**
+	 * @return fraction of requests for our own utility answered from the cache
+	 */
+	public double getHitRate() {
+		return own.getHitRate();
+	}
+
+	/**
+	 * @return fraction of requests for the opponent utility answered from the cache
+	 */
+	public double getOpponentHitRate() {
+		return opponent.getHitRate();
+	}
+
+	/**
+	 * @return number of requests for a utility, own and opponent together
+	 */
+	public long getRequests() {
+		return own.requests + opponent.requests;
+	}
+
+	/**
+	 * @return number of utilities computed because they were not in the cache, own and opponent together
+	 */
+	public long getComputations() {
+		return own.computations + opponent.computations;
+	}
+
+	/**
+	 * @return hit rates, and the utilities requested and computed per round of the session so far
+	 */
+	public String getSummary() {
+		int rounds = Math.max(1, negotiationSession.getOwnBidHistory().size());
+		return String.format("own hit rate %.3f, opponent hit rate %.3f, per round %.1f utilities requested, %.1f computed",
+				getHitRate(), getOpponentHitRate(), getRequests() / (double) rounds, getComputations() / (double) rounds);
+	}
+
+	/**
+	 * Direct mapped table of utilities. A slot is valid only if it was written in the current generation,
+	 * so clearing the table is just starting a new generation.
+	 */
+	private static class Table {
+
+		private final long[] keys;
+		private final double[] values;
+		private final int[] generations;
+		private final int shift;
+		private int generation = 1;
+		private long requests, computations;
+
+		private Table(int capacity) {
+			keys = new long[capacity];
+			values = new double[capacity];
+			generations = new int[capacity];
+			shift = 64 - Integer.numberOfTrailingZeros(capacity);
+		}
+
+		/**
+		 * @return slot holding the key, or -1 if it is not cached
+		 */
+		private int find(long key) {
+			requests++;
+			int slot = slot(key);
+			return generations[slot] == generation && keys[slot] == key ? slot : -1;
+		}
+
+		/**
+		 * Store the utility of the key, replacing whatever was in its slot.
+		 *
+		 * @return slot of the key
+		 */
+		private int put(long key, double value) {
+			computations++;
+			int slot = slot(key);
+			keys[slot] = key;
+			values[slot] = value;
+			generations[slot] = generation;
+			return slot;
+		}
+
+		private int slot(long key) {
+			// Fibonacci hashing spreads neighbouring keys over the table
+			return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+		}
+
+		/**
+		 * Count a request which cannot be cached.
+		 */
+		private void bypass() {
+			requests++;
+			computations++;
+		}
+
+		private void clear() {
+			generation++;
+		}
+
+		private double getHitRate() {
+			return requests == 0 ? 0 : (requests - computations) / (double) requests;
+		}
+	}
+}
@@ -0,0 +1,368 @@
+package group13.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.DomainImpl;
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.ValueDiscrete;
+import genius.core.timeline.DiscreteTimeline;
+import genius.core.uncertainty.AdditiveUtilitySpaceFactory;
+import genius.core.utility.AdditiveUtilitySpace;
+import group13.BatchScorer;
+import group13.BidCodec;
+import group13.CompiledUtility;
+import group13.Group13_AS;
+import group13.Group13_BS;
+import group13.Group13_OM;
+import group13.Group13_OMS;
+import group13.UtilityCache;
+
+/**
+ * Micro benchmark of the BOA components of agent NiceHardHeaded of group 13 of Multi-Agent Systems project.
+ * Each component is run on synthetic domains of increasing size, 10 values per issue,
+ * and for each call the throughput and, where the JVM can tell, the allocated bytes are reported.
+ * Every call returns a number derived from its result, and the numbers are summed into a volatile field,
+ * so the JIT cannot drop a call whose result is unused, the way a JMH blackhole consumes results.
+ * The opponent model learns from a sequence of opponent bids in which successive bids share most values, as real opponents offer them.
+ * Then a negotiation of a few hundred rounds against random opponent bids is played with fresh components,
+ * to report how many utilities the shared {@link UtilityCache} saves per round.
+ *
+ * Usage: ComponentBenchmark [largest outcome exponent, default 7] [measure seconds per benchmark, default 2]
+ * Output is one line per component and domain size: benchmark;outcomes;ops/s;bytes/op,
+ * and one line per domain size with the hit rates of the cache: UtilityCache;outcomes;summary
+ */
+public class ComponentBenchmark {
+
+	// Number of values of each issue in the synthetic domains
+	private static final int VALUES_PER_ISSUE = 10;
+	// Number of rounds of the synthetic negotiation
+	private static final int ROUNDS = 1000;
+	// Number of opponent bids in the history before measuring
+	private static final int HISTORY = 200;
+	// Number of candidate bids passed to OMS
+	private static final int CANDIDATES = 100;
+	// Number of candidate bids scored at once, as many as a widened range of a large domain can return
+	private static final int BATCH = 10000;
+	// Probability that an opponent bid changes the value of an issue of its previous bid
+	private static final double CHANGE_PROBABILITY = 0.3;
+
+	private final long measureNanos;
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	// Sum of the results of all measured calls, written once per measurement so no result is dead code
+	private volatile double sink;
+
+	public ComponentBenchmark(double measureSeconds) {
+		this.measureNanos = (long) (measureSeconds * 1e9);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int maxExponent = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+		double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+		ComponentBenchmark benchmark = new ComponentBenchmark(seconds);
+		System.out.println("benchmark;outcomes;ops/s;bytes/op");
+		for (int exponent = 3; exponent <= maxExponent; exponent++) {
+			try {
+				benchmark.run(exponent);
+			} catch (OutOfMemoryError e) {
+				System.out.println("setup;" + (long) Math.pow(VALUES_PER_ISSUE, exponent) + ";out of memory;");
+			}
+		}
+	}
+
+	/**
+	 * Run all benchmarks on a domain with 10^issues outcomes.
+	 */
+	private void run(int issues) throws Exception {
+		Random random = new Random(issues);
+		Domain domain = createDomain(issues);
+		AdditiveUtilitySpace utilitySpace = createUtilitySpace(domain, random);
+		long outcomes = domain.getNumberOfPossibleBids();
+
+		DiscreteTimeline timeline = new DiscreteTimeline(ROUNDS);
+		NegotiationSession session = new NegotiationSession(null, utilitySpace, timeline);
+		Map<String, Double> noParams = Collections.emptyMap();
+		final Group13_OM om = new Group13_OM();
+		final Group13_OMS oms = new Group13_OMS();
+		final Group13_BS bs = new Group13_BS();
+		final Group13_AS as = new Group13_AS();
+		om.init(session, noParams);
+		oms.init(session, om, noParams);
+		bs.init(session, om, oms, noParams);
+		as.init(session, bs, om, noParams);
+
+		// Fill both histories, and let the model learn from the opponent bids
+		for (int i = 0; i < HISTORY; i++) {
+			timeline.increment();
+			Bid own = domain.getRandomBid(random);
+			Bid opponent = domain.getRandomBid(random);
+			session.getOwnBidHistory().add(new BidDetails(own, utilitySpace.getUtility(own), session.getTime()));
+			session.getOpponentBidHistory().add(new BidDetails(opponent, utilitySpace.getUtility(opponent), session.getTime()));
+			om.updateModel(opponent, session.getTime());
+		}
+
+		final Bid[] bids = new Bid[1024];
+		for (int i = 0; i < bids.length; i++) {
+			bids[i] = domain.getRandomBid(random);
+		}
+		final List<BidDetails> candidates = new ArrayList<BidDetails>();
+		for (int i = 0; i < CANDIDATES; i++) {
+			candidates.add(new BidDetails(bids[i], utilitySpace.getUtility(bids[i])));
+		}
+
+		// The model reads the last two bids of the opponent history, not its argument, so a model of its own gets an opponent history
+		// of the last two bids of the sequence, moved one bid ahead before each update
+		final BidDetails[] opponentBids = createOpponentBids(domain, utilitySpace, random, 1024);
+		final NegotiationSession updateSession = new NegotiationSession(null, utilitySpace, new DiscreteTimeline(ROUNDS));
+		final Group13_OM updateOm = new Group13_OM();
+		updateOm.init(updateSession, noParams);
+		updateSession.getOpponentBidHistory().add(opponentBids[1022]);
+		updateSession.getOpponentBidHistory().add(opponentBids[1023]);
+		measure("Group13_OM.updateModel", outcomes, new Operation() {
+			@Override
+			public double run(int i) {
+				BidDetails bid = opponentBids[i & 1023];
+				// The history list is the live list of the session
+				updateSession.getOpponentBidHistory().getHistory().remove(0);
+				updateSession.getOpponentBidHistory().add(bid);
+				updateOm.updateModel(bid.getBid(), 0.5);
+				return updateOm.getVersion();
+			}
+		});
+		measure("Group13_OM.getBidEvaluation", outcomes, new Operation() {
+			@Override
+			public double run(int i) {
+				return om.getBidEvaluation(bids[i & 1023]);
+			}
+		});
+		final Bid[] batchBids = new Bid[BATCH];
+		final BatchScorer batch = new BatchScorer(new BidCodec(domain), BATCH);
+		for (int i = 0; i < BATCH; i++) {
+			batchBids[i] = domain.getRandomBid(random);
+			batch.add(batchBids[i]);
+		}
+		final double[][] ownTable = BatchScorer.getUtilityTable(utilitySpace, new BidCodec(domain));
+		final AdditiveUtilitySpace ownSpace = utilitySpace;
+		final double[] batchUtilities = new double[BATCH];
+		measure("AdditiveUtilitySpace.getUtility x" + BATCH, outcomes, new Operation() {
+			@Override
+			public double run(int i) {
+				for (int b = 0; b < BATCH; b++) {
+					batchUtilities[b] = ownSpace.getUtility(batchBids[b]);
+				}
+				return batchUtilities[i % BATCH];
+			}
+		});
+		final CompiledUtility compiled = new CompiledUtility(utilitySpace, new BidCodec(domain));
+		measure("CompiledUtility.getUtility x" + BATCH, outcomes, new Operation() {
+			@Override
+			public double run(int i) {
+				for (int b = 0; b < BATCH; b++) {
+					batchUtilities[b] = compiled.getUtility(batchBids[b]);
+				}
+				return batchUtilities[i % BATCH];
+			}
+		});
+		measure("BatchScorer.score own x" + BATCH, outcomes, new Operation() {
+			@Override
+			public double run(int i) {
+				batch.score(ownTable, batchUtilities);
+				return batchUtilities[i % BATCH];
+			}
+		});
+		measure("Group13_OM.getBidEvaluation x" + BATCH, outcomes, new Operation() {
+			@Override
+			public double run(int i) {
+				for (int b = 0; b < BATCH; b++) {
+					batchUtilities[b] = om.getBidEvaluation(batchBids[b]);
+				}
+				return batchUtilities[i % BATCH];
+			}
+		});
+		measure("Group13_OM.getBidEvaluations batch x" + BATCH, outcomes, new Operation() {
+			@Override
+			public double run(int i) {
+				om.getBidEvaluations(batch, batchUtilities);
+				return batchUtilities[i % BATCH];
+			}
+		});
+		measure("Group13_OMS.getBid", outcomes, new Operation() {
+			@Override
+			public double run(int i) {
+				return oms.getBid(candidates).getMyUndiscountedUtil();
+			}
+		});
+		measure("Group13_BS.determineNextBid", outcomes, new Operation() {
+			@Override
+			public double run(int i) {
+				return bs.determineNextBid().getMyUndiscountedUtil();
+			}
+		});
+		measure("Group13_AS.determineAcceptability", outcomes, new Operation() {
+			@Override
+			public double run(int i) {
+				return as.determineAcceptability().ordinal();
+			}
+		});
+		playRounds(domain, utilitySpace, random, outcomes);
+	}
+
+	/**
+	 * Play a negotiation against random opponent bids with fresh components, calling them as the BOA framework does in each round,
+	 * and print the hit rates of the utility cache of the session.
+	 */
+	private void playRounds(Domain domain, AdditiveUtilitySpace utilitySpace, Random random, long outcomes) throws Exception {
+		DiscreteTimeline timeline = new DiscreteTimeline(ROUNDS);
+		NegotiationSession session = new NegotiationSession(null, utilitySpace, timeline);
+		Map<String, Double> noParams = Collections.emptyMap();
+		Group13_OM om = new Group13_OM();
+		Group13_OMS oms = new Group13_OMS();
+		Group13_BS bs = new Group13_BS();
+		Group13_AS as = new Group13_AS();
+		om.init(session, noParams);
+		oms.init(session, om, noParams);
+		bs.init(session, om, oms, noParams);
+		as.init(session, bs, om, noParams);
+		for (int i = 0; i < HISTORY; i++) {
+			timeline.increment();
+			Bid opponent = domain.getRandomBid(random);
+			session.getOpponentBidHistory().add(new BidDetails(opponent, utilitySpace.getUtility(opponent), session.getTime()));
+			om.updateModel(opponent, session.getTime());
+			BidDetails own = bs.determineNextBid();
+			as.determineAcceptability();
+			session.getOwnBidHistory().add(new BidDetails(own.getBid(), own.getMyUndiscountedUtil(), session.getTime()));
+		}
+		System.out.println("UtilityCache;" + outcomes + ";" + bs.getContext().getUtilityCache().getSummary());
+	}
+
+	/**
+	 * Warm up an operation for a second, then run it for the measure time and print its throughput and allocation.
+	 */
+	private void measure(String name, long outcomes, Operation operation) {
+		runFor(operation, 1000000000L);
+		long bytesBefore = allocatedBytes();
+		long start = System.nanoTime();
+		long ops = runFor(operation, measureNanos);
+		long elapsed = System.nanoTime() - start;
+		long bytesAfter = allocatedBytes();
+		String bytesPerOp = bytesBefore < 0 ? "n/a" : String.format("%.1f", (bytesAfter - bytesBefore) / (double) ops);
+		System.out.println(name + ";" + outcomes + ";" + String.format("%.1f", ops * 1e9 / elapsed) + ";" + bytesPerOp);
+	}
+
+	/**
+	 * @return number of operations run within the given time
+	 */
+	private long runFor(Operation operation, long nanos) {
+		long end = System.nanoTime() + nanos;
+		long ops = 0;
+		double results = 0;
+		do {
+			// Check the clock once per 16 operations
+			for (int i = 0; i < 16; i++) {
+				results += operation.run((int) ops++);
+			}
+		} while (System.nanoTime() < end);
+		sink += results;
+		return ops;
+	}
+
+	/**
+	 * @return bytes allocated by this thread so far, or -1 if the JVM does not count them
+	 */
+	private long allocatedBytes() {
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+			if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+				return counter.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Create a sequence of opponent bids, each changing every issue of the previous bid with a fixed probability.
+	 */
+	private static BidDetails[] createOpponentBids(Domain domain, AdditiveUtilitySpace utilitySpace, Random random, int count) {
+		BidCodec codec = new BidCodec(domain);
+		int[] values = codec.encode(domain.getRandomBid(random));
+		BidDetails[] opponentBids = new BidDetails[count];
+		for (int b = 0; b < count; b++) {
+			for (int i = 0; i < values.length; i++) {
+				if (random.nextDouble() < CHANGE_PROBABILITY) {
+					values[i] = random.nextInt(codec.getValueCount(i));
+				}
+			}
+			Bid bid = codec.decode(values);
+			opponentBids[b] = new BidDetails(bid, utilitySpace.getUtility(bid), 0.5);
+		}
+		return opponentBids;
+	}
+
+	/**
+	 * Write a domain with the given number of issues of 10 values each to a temporary file and load it.
+	 */
+	static Domain createDomain(int issues) throws Exception {
+		File file = File.createTempFile("group13_domain_" + issues, ".xml");
+		file.deleteOnExit();
+		writeDomain(file, issues);
+		return new DomainImpl(file.getPath());
+	}
+
+	private static void writeDomain(File file, int issues) throws IOException {
+		PrintWriter out = new PrintWriter(file, "UTF-8");
+		try {
+			out.println("<negotiation_template>");
+			out.println("<utility_space number_of_issues=\"" + issues + "\">");
+			out.println("<objective index=\"0\" description=\"\" name=\"synthetic\" type=\"objective\" etype=\"objective\">");
+			for (int i = 1; i <= issues; i++) {
+				out.println("<issue name=\"issue" + i + "\" index=\"" + i + "\" etype=\"discrete\" type=\"discrete\" vtype=\"discrete\">");
+				for (int v = 1; v <= VALUES_PER_ISSUE; v++) {
+					out.println("<item index=\"" + v + "\" value=\"value" + v + "\" cost=\"0.0\" description=\"\"></item>");
+				}
+				out.println("</issue>");
+			}
+			out.println("</objective>");
+			out.println("</utility_space>");
+			out.println("</negotiation_template>");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Create an additive utility space with random weights and value utilities.
+	 */
+	static AdditiveUtilitySpace createUtilitySpace(Domain domain, Random random) {
+		AdditiveUtilitySpaceFactory factory = new AdditiveUtilitySpaceFactory(domain);
+		for (IssueDiscrete issue : factory.getIssues()) {
+			factory.setWeight(issue, random.nextDouble());
+			for (ValueDiscrete value : issue.getValues()) {
+				factory.setUtility(issue, value, random.nextDouble());
+			}
+		}
+		factory.normalizeWeights();
+		return factory.getUtilitySpace();
+	}
+
+	/**
+	 * One call of the benchmarked method.
+	 */
+	interface Operation {
+		/**
+		 * @return a number derived from the result of the call
+		 */
+		double run(int i);
+	}
+}
@@ -0,0 +1,392 @@
+package group13.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.Deadline;
+import genius.core.DeadlineType;
+import genius.core.Domain;
+import genius.core.actions.Accept;
+import genius.core.actions.Action;
+import genius.core.actions.EndNegotiation;
+import genius.core.actions.Offer;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Objective;
+import genius.core.issue.ValueDiscrete;
+import genius.core.parties.NegotiationInfo;
+import genius.core.parties.NegotiationParty;
+import genius.core.timeline.DiscreteTimeline;
+import genius.core.uncertainty.BidRanking;
+import genius.core.uncertainty.UserModel;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.Evaluator;
+import genius.core.utility.EvaluatorDiscrete;
+import group13.BidCodec;
+import group13.BidRankIndex;
+import group13.ConcessionFit;
+import group13.FrequencyModel;
+import group13.Group13_NiceHardHead;
+import group13.LatencyHistogram;
+import group13.SimilarityIndex;
+
+/**
+ * Checks of the components of agent NiceHardHeaded of group 13 of Multi-Agent Systems project, run as a program like {@link ComponentBenchmark}.
+ * Each check prints one line, check;ok or check;FAILED with the reason, and the program exits with status 1 if any check failed.
+ * Indices and statistics are checked against a plain computation of the same result, like a scan of the ranking.
+ *
+ * Usage: ComponentChecks
+ */
+public class ComponentChecks {
+
+	// Number of bids fed to the concession fit while the time stays near 0, far more than any session of the tournament,
+	// and then over the whole session
+	private static final int FIT_IDLE_BIDS = 100000, FIT_BIDS = 500;
+	// Number of sessions played alone and in parallel, their rounds, and the issues of their domain
+	private static final int SESSIONS = 32, SESSION_ROUNDS = 100, SESSION_ISSUES = 3;
+	// Number of opponent bids replayed through both opponent models, and the issues of their domain,
+	// more than a HashSet of 16 buckets holds, so the order of the unchanged issues changes when it grows
+	private static final int MODEL_BIDS = 2000, MODEL_ISSUES = 16;
+	// Largest difference allowed between the weights of both opponent models
+	private static final double MODEL_TOLERANCE = 1e-9;
+	// Number of values recorded in the latency histogram, and the largest relative error of a percentile
+	private static final int HISTOGRAM_VALUES = 100000;
+	private static final double HISTOGRAM_PRECISION = 1.0 / 32;
+	// Number of ranked bids, queries, and the issues of their domain
+	private static final int RANKED_BIDS = 500, RANK_QUERIES = 2000, RANK_ISSUES = 6;
+
+	// Reasons of the failed checks
+	private final List<String> failures = new ArrayList<String>();
+
+	public static void main(String[] args) throws Exception {
+		ComponentChecks checks = new ComponentChecks();
+		checks.run();
+		System.exit(checks.failures.isEmpty() ? 0 : 1);
+	}
+
+	private void run() throws Exception {
+		checkConcessionFit();
+		checkLatencyHistogram();
+		checkFrequencyModel();
+		checkBidRankIndex();
+		checkSimilarityIndex();
+		checkParallelSessions();
+	}
+
+	/**
+	 * Record values spread over many powers of two in two histograms, merge them, 
+	 * and check each percentile is at least the exact percentile of the sorted values and within the precision above it.
+	 */
+	private void checkLatencyHistogram() {
+		Random random = new Random(HISTOGRAM_VALUES);
+		LatencyHistogram first = new LatencyHistogram(), second = new LatencyHistogram();
+		long[] values = new long[HISTOGRAM_VALUES];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (long) Math.exp(random.nextDouble() * Math.log(1e10));
+			(i % 2 == 0 ? first : second).record(values[i]);
+		}
+		first.merge(second);
+		Arrays.sort(values);
+		if (first.getCount() != values.length || first.getMax() != values[values.length - 1]) {
+			fail("LatencyHistogram", "merged count " + first.getCount() + " and max " + first.getMax());
+			return;
+		}
+		double[] fractions = { 0.01, 0.5, 0.9, 0.99, 0.999, 1 };
+		for (double fraction : fractions) {
+			long exact = values[(int) Math.ceil(fraction * values.length) - 1];
+			long estimate = first.getPercentile(fraction);
+			if (estimate < exact || estimate > exact + Math.max(1, exact * HISTOGRAM_PRECISION)) {
+				fail("LatencyHistogram", "percentile " + fraction + " is " + estimate + " instead of " + exact);
+				return;
+			}
+		}
+		pass("LatencyHistogram");
+	}
+
+	/**
+	 * Rank random bids of a domain and check the rank of each bid, ranked or not, against its position in the ranking.
+	 */
+	private void checkBidRankIndex() throws Exception {
+		Random random = new Random(RANKED_BIDS);
+		Domain domain = ComponentBenchmark.createDomain(RANK_ISSUES);
+		List<Bid> bidOrder = createRanking(domain, random);
+		BidRankIndex index = new BidRankIndex(new UserModel(new BidRanking(bidOrder, 0, 1)));
+		for (int q = 0; q < RANK_QUERIES; q++) {
+			Bid bid = q < bidOrder.size() ? bidOrder.get(q) : domain.getRandomBid(random);
+			int expected = bidOrder.indexOf(bid);
+			if (index.getRank(bid) != expected) {
+				fail("BidRankIndex", "rank of " + bid + " is " + index.getRank(bid) + " instead of " + expected);
+				return;
+			}
+		}
+		pass("BidRankIndex");
+	}
+
+	/**
+	 * Check the ranked bid most similar to random bids against a scan of the whole ranking,
+	 * which keeps the lowest rank of the bids sharing the most values.
+	 */
+	private void checkSimilarityIndex() throws Exception {
+		Random random = new Random(RANK_QUERIES);
+		Domain domain = ComponentBenchmark.createDomain(RANK_ISSUES);
+		BidCodec codec = new BidCodec(domain);
+		List<Bid> bidOrder = createRanking(domain, random);
+		int[][] ranked = new int[bidOrder.size()][];
+		for (int rank = 0; rank < ranked.length; rank++) {
+			ranked[rank] = codec.encode(bidOrder.get(rank));
+		}
+		SimilarityIndex index = new SimilarityIndex(codec, bidOrder);
+		for (int q = 0; q < RANK_QUERIES; q++) {
+			Bid bid = domain.getRandomBid(random);
+			int[] query = codec.encode(bid);
+			int expected = -1, bestEqual = 0;
+			for (int rank = 0; rank < ranked.length; rank++) {
+				int equal = BidCodec.countEqualValues(ranked[rank], query);
+				if (equal > bestEqual) {
+					expected = rank;
+					bestEqual = equal;
+				}
+			}
+			if (index.getClosestRank(bid) != expected) {
+				fail("SimilarityIndex", "closest rank to " + bid + " is " + index.getClosestRank(bid) + " instead of " + expected);
+				return;
+			}
+		}
+		pass("SimilarityIndex");
+	}
+
+	/**
+	 * @return distinct random bids of the domain, in random order
+	 */
+	private static List<Bid> createRanking(Domain domain, Random random) {
+		Set<Bid> bids = new LinkedHashSet<Bid>();
+		while (bids.size() < RANKED_BIDS) {
+			bids.add(domain.getRandomBid(random));
+		}
+		return new ArrayList<Bid>(bids);
+	}
+
+	/**
+	 * Replay one opponent bid sequence through the original opponent model, on an AdditiveUtilitySpace, and through {@link FrequencyModel},
+	 * and check both give the same issue weights and value counts after every bid.
+	 * Successive bids keep each value with probability one half, so every number of unchanged issues occurs.
+	 */
+	private void checkFrequencyModel() throws Exception {
+		Random random = new Random(MODEL_ISSUES);
+		Domain domain = ComponentBenchmark.createDomain(MODEL_ISSUES);
+		BaselineModel baseline = new BaselineModel(ComponentBenchmark.createUtilitySpace(domain, random), 0.25);
+		BidCodec codec = new BidCodec(domain);
+		FrequencyModel model = new FrequencyModel(codec, 0.25);
+		int[] values = codec.encode(domain.getRandomBid(random));
+		Bid previous = codec.decode(values);
+		for (int b = 1; b < MODEL_BIDS; b++) {
+			for (int i = 0; i < values.length; i++) {
+				if (random.nextBoolean()) {
+					values[i] = random.nextInt(codec.getValueCount(i));
+				}
+			}
+			Bid current = codec.decode(values);
+			baseline.update(previous, current);
+			model.update(previous, current);
+			previous = current;
+			for (int i = 0; i < codec.getIssueCount(); i++) {
+				IssueDiscrete issue = codec.getIssue(i);
+				double difference = Math.abs(baseline.space.getWeight(issue.getNumber()) - model.getWeight(i));
+				if (difference > MODEL_TOLERANCE) {
+					fail("FrequencyModel", "weight of issue " + issue.getName() + " differs by " + difference + " after " + b + " bids");
+					return;
+				}
+				EvaluatorDiscrete evaluator = (EvaluatorDiscrete) baseline.space.getEvaluator(issue.getNumber());
+				for (int v = 0; v < codec.getValueCount(i); v++) {
+					if (evaluator.getEvaluationNotNormalized(issue.getValue(v)).intValue() != model.getCount(i, v)) {
+						fail("FrequencyModel", "count of value " + issue.getValue(v) + " differs after " + b + " bids");
+						return;
+					}
+				}
+			}
+		}
+		pass("FrequencyModel");
+	}
+
+	/**
+	 * Play sessions of Group13_NiceHardHead against itself one after the other, then all at once on every core,
+	 * and check each session makes the same moves both times, so no state leaks between sessions running in parallel.
+	 */
+	private void checkParallelSessions() throws Exception {
+		final Domain domain = ComponentBenchmark.createDomain(SESSION_ISSUES);
+		List<String> alone = new ArrayList<String>();
+		for (int s = 0; s < SESSIONS; s++) {
+			alone.add(playSession(domain, s));
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		List<Future<String>> parallel = new ArrayList<Future<String>>();
+		try {
+			for (int s = 0; s < SESSIONS; s++) {
+				final int session = s;
+				parallel.add(pool.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						return playSession(domain, session);
+					}
+				}));
+			}
+			for (int s = 0; s < SESSIONS; s++) {
+				if (!alone.get(s).equals(parallel.get(s).get())) {
+					fail("parallel sessions", "session " + s + " made other moves in parallel than alone");
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+		pass("parallel sessions");
+	}
+
+	/**
+	 * Play one session of Group13_NiceHardHead against itself, with profiles and seeds given by the number of the session.
+	 *
+	 * @return moves of the session, one per line
+	 */
+	private static String playSession(Domain domain, int number) throws Exception {
+		Random random = new Random(number);
+		AdditiveUtilitySpace[] spaces = { ComponentBenchmark.createUtilitySpace(domain, random), ComponentBenchmark.createUtilitySpace(domain, random) };
+		DiscreteTimeline timeline = new DiscreteTimeline(SESSION_ROUNDS);
+		NegotiationParty[] parties = new NegotiationParty[2];
+		AgentID[] ids = new AgentID[2];
+		for (int p = 0; p < 2; p++) {
+			parties[p] = new Group13_NiceHardHead();
+			ids[p] = new AgentID("Group13_NiceHardHead@" + (2 * number + p));
+			parties[p].init(new NegotiationInfo(spaces[p], null, null, new Deadline(SESSION_ROUNDS, DeadlineType.ROUND), timeline,
+					number * 2L + p, ids[p], null));
+		}
+		List<Class<? extends Action>> opening = Arrays.<Class<? extends Action>>asList(Offer.class, EndNegotiation.class);
+		List<Class<? extends Action>> answers = Arrays.<Class<? extends Action>>asList(Accept.class, Offer.class, EndNegotiation.class);
+		StringBuilder moves = new StringBuilder();
+		Bid lastBid = null, agreement = null;
+		negotiation:
+		for (int round = 1; round <= SESSION_ROUNDS; round++) {
+			for (int p = 0; p < 2; p++) {
+				Action action = parties[p].chooseAction(lastBid == null ? opening : answers);
+				parties[1 - p].receiveMessage(ids[p], action);
+				moves.append(action).append('\n');
+				if (action instanceof Offer) {
+					lastBid = ((Offer) action).getBid();
+				} else {
+					agreement = action instanceof Accept ? lastBid : null;
+					break negotiation;
+				}
+			}
+			timeline.increment();
+		}
+		for (int p = 0; p < 2; p++) {
+			parties[p].negotiationEnded(agreement);
+		}
+		return moves.toString();
+	}
+
+	/**
+	 * Feed the concession fit many bids of opponents with a known exponent, including a long start with the time near 0,
+	 * where the regressor of the low exponents has no excitation, and check its estimates stay finite and in range.
+	 */
+	private void checkConcessionFit() {
+		double[] exponents = { 0.1, 1, 10 };
+		for (double exponent : exponents) {
+			// The fit only uses the session to read the opponent history, which add bypasses
+			ConcessionFit fit = new ConcessionFit(null, null);
+			for (int i = 0; i < FIT_IDLE_BIDS + FIT_BIDS; i++) {
+				double time = i < FIT_IDLE_BIDS ? 0.001 : (i - FIT_IDLE_BIDS) / (double) FIT_BIDS;
+				fit.add(time, 1 - 0.5 * Math.pow(time, 1 / exponent));
+				if (!isFinite(fit.getExponent()) || !isFinite(fit.getConfidence()) || Math.abs(fit.getConcession()) > 1) {
+					fail("ConcessionFit e=" + exponent, "estimate out of range after " + (i + 1) + " bids: exponent " + fit.getExponent()
+							+ ", confidence " + fit.getConfidence() + ", concession " + fit.getConcession());
+					break;
+				}
+			}
+			double error = Math.abs(Math.log(fit.getExponent() / exponent));
+			if (error > Math.log(2)) {
+				fail("ConcessionFit e=" + exponent, "estimated exponent " + fit.getExponent());
+			} else {
+				pass("ConcessionFit e=" + exponent);
+			}
+		}
+	}
+
+	/**
+	 * Update rule of the original Group13_OM, which kept the opponent model in a copy of our AdditiveUtilitySpace.
+	 */
+	private static class BaselineModel {
+
+		private final AdditiveUtilitySpace space;
+		private final int issueNumber;
+		private final double valueAddition;
+
+		private BaselineModel(AdditiveUtilitySpace ownSpace, double learningRate) {
+			space = (AdditiveUtilitySpace) ownSpace.copy();
+			issueNumber = space.getDomain().getIssues().size();
+			valueAddition = learningRate / issueNumber;
+			double oriWeight = 1.0 / issueNumber;
+			try {
+				for (Entry<Objective, Evaluator> eva : space.getEvaluators()) {
+					space.unlock(eva.getKey());
+					eva.getValue().setWeight(oriWeight);
+					for (ValueDiscrete value : ((IssueDiscrete) eva.getKey()).getValues()) {
+						((EvaluatorDiscrete) eva.getValue()).setEvaluation(value, 1);
+					}
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+
+		private void update(Bid prevOpponentBid, Bid currOpponentBid) throws Exception {
+			double weightSum = 1.0, maxWeight = 1.0;
+			Set<Integer> unchangedIssue = new HashSet<>();
+			for (Issue i : space.getDomain().getIssues()) {
+				if (currOpponentBid.getValue(i.getNumber()).equals(prevOpponentBid.getValue(i.getNumber()))) {
+					unchangedIssue.add(i.getNumber());
+				}
+			}
+			weightSum += valueAddition * unchangedIssue.size();
+			maxWeight -= issueNumber * valueAddition / weightSum;
+			for (int i : unchangedIssue) {
+				Objective issue = space.getDomain().getObjectivesRoot().getObjective(i);
+				double weight = space.getWeight(i);
+				double newWeight = (unchangedIssue.contains(i) && weight < maxWeight) ? (weight + valueAddition) / weightSum : weight / weightSum;
+				space.setWeight(issue, newWeight);
+			}
+			for (Entry<Objective, Evaluator> eva : space.getEvaluators()) {
+				IssueDiscrete issue = (IssueDiscrete) eva.getKey();
+				ValueDiscrete value = (ValueDiscrete) currOpponentBid.getValue(issue.getNumber());
+				((EvaluatorDiscrete) eva.getValue()).setEvaluation(value, ((EvaluatorDiscrete) eva.getValue()).getEvaluationNotNormalized(value) + 1);
+			}
+		}
+	}
+
+	private void pass(String check) {
+		if (!failures.contains(check)) {
+			System.out.println(check + ";ok");
+		}
+	}
+
+	private void fail(String check, String reason) {
+		if (!failures.contains(check)) {
+			failures.add(check);
+			System.out.println(check + ";FAILED;" + reason);
+		}
+	}
+
+	private static boolean isFinite(double value) {
+		return !Double.isNaN(value) && !Double.isInfinite(value);
+	}
+}
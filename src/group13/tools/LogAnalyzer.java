@@ -0,0 +1,369 @@
+package group13.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Aggregates tournament logs of Genius, as written to the log folder, per agent and per profile.
+ * Files are read as a stream, .log.csv line by line and .log.xml with StAX, so memory does not grow with the size of the logs:
+ * every statistic is a running sum, and utility percentiles come from a histogram of 1000 bins over [0, 1].
+ * Each file is aggregated on its own worker thread, and the aggregates of all files are merged at the end.
+ *
+ * The xml logs have no distance to Pareto or Nash, so these are only reported for csv logs.
+ * A directory stands for all .log.csv files in it, or with -xml for all .log.xml files in it.
+ *
+ * Usage: LogAnalyzer [-xml] [-threads n] file or directory...
+ * Output is one line per agent and profile: group;name;sessions;agreement rate;mean utility;p10;p50;p90;
+ * mean dist. to Pareto;mean dist. to Nash;mean social welfare;mean run time (s)
+ */
+public class LogAnalyzer {
+
+	private static final String HEADER = "group;name;sessions;agreement rate;mean utility;p10;p50;p90;"
+			+ "mean dist. to Pareto;mean dist. to Nash;mean social welfare;mean run time (s)";
+
+	public static void main(String[] args) throws Exception {
+		boolean xml = false;
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<File> files = new ArrayList<File>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-xml")) {
+				xml = true;
+			} else if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[++i]);
+			} else {
+				files.add(new File(args[i]));
+			}
+		}
+		List<File> logs = new ArrayList<File>();
+		String suffix = xml ? ".log.xml" : ".log.csv";
+		for (File file : files) {
+			if (file.isDirectory()) {
+				File[] children = file.listFiles();
+				if (children != null) {
+					for (File child : children) {
+						if (child.getName().endsWith(suffix)) {
+							logs.add(child);
+						}
+					}
+				}
+			} else {
+				logs.add(file);
+			}
+		}
+		Aggregate total = analyze(logs, threads);
+		System.out.println(HEADER);
+		total.print();
+	}
+
+	/**
+	 * Aggregate each log on a worker thread and merge the aggregates.
+	 */
+	public static Aggregate analyze(List<File> logs, int threads) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+		try {
+			List<Future<Aggregate>> futures = new ArrayList<Future<Aggregate>>();
+			for (final File log : logs) {
+				futures.add(pool.submit(new Callable<Aggregate>() {
+					@Override
+					public Aggregate call() throws Exception {
+						Aggregate aggregate = new Aggregate();
+						if (log.getName().endsWith(".xml")) {
+							readXml(log, aggregate);
+						} else {
+							readCsv(log, aggregate);
+						}
+						return aggregate;
+					}
+				}));
+			}
+			Aggregate total = new Aggregate();
+			for (Future<Aggregate> future : futures) {
+				total.merge(future.get());
+			}
+			return total;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Read a ;-separated log, finding the columns by the names in its header.
+	 */
+	static void readCsv(File file, Aggregate aggregate) throws Exception {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line = reader.readLine();
+			if (line != null && line.startsWith("sep=")) {
+				line = reader.readLine();
+			}
+			if (line == null) {
+				return;
+			}
+			List<String> header = split(line);
+			int runtime = header.indexOf("Run time (s)"), agreement = header.indexOf("Agreement");
+			int pareto = header.indexOf("Dist. to Pareto"), nash = header.indexOf("Dist. to Nash"), welfare = header.indexOf("Social Welfare");
+			int[] agents = { header.indexOf("Agent 1"), header.indexOf("Agent 2") };
+			int[] utilities = { header.indexOf("Utility 1"), header.indexOf("Utility 2") };
+			int[] profiles = { header.indexOf("Profile 1"), header.indexOf("Profile 2") };
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) {
+					continue;
+				}
+				List<String> cells = split(line);
+				double sessionRuntime = number(cells, runtime);
+				boolean agreed = agreement >= 0 && agreement < cells.size() && cells.get(agreement).equals("Yes");
+				for (int p = 0; p < 2; p++) {
+					aggregate.add(agentName(cell(cells, agents[p])), cell(cells, profiles[p]), number(cells, utilities[p]), agreed,
+							number(cells, pareto), number(cells, nash), number(cells, welfare), sessionRuntime);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Read an xml log one NegotiationOutcome at a time. The outcome attributes are kept until its resultsOfAgent elements are read.
+	 */
+	static void readXml(File file, Aggregate aggregate) throws Exception {
+		InputStream in = new FileInputStream(file);
+		XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+		try {
+			double runtime = Double.NaN;
+			boolean agreed = false;
+			List<String> agents = new ArrayList<String>(2), profiles = new ArrayList<String>(2);
+			List<Double> utilities = new ArrayList<Double>(2);
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+					if (name.equals("NegotiationOutcome")) {
+						runtime = parse(reader.getAttributeValue(null, "runtime"));
+						String outcome = reader.getAttributeValue(null, "finalOutcome");
+						agreed = outcome != null && !outcome.isEmpty() && !outcome.equals("-");
+						agents.clear();
+						profiles.clear();
+						utilities.clear();
+					} else if (name.equals("resultsOfAgent")) {
+						agents.add(agentName(reader.getAttributeValue(null, "agent")));
+						profiles.add(new File(String.valueOf(reader.getAttributeValue(null, "utilspace"))).getName());
+						utilities.add(parse(reader.getAttributeValue(null, "finalUtility")));
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("NegotiationOutcome")) {
+					double welfare = 0;
+					for (double utility : utilities) {
+						welfare += utility;
+					}
+					for (int p = 0; p < agents.size(); p++) {
+						aggregate.add(agents.get(p), profiles.get(p), utilities.get(p), agreed, Double.NaN, Double.NaN, welfare, runtime);
+					}
+				}
+			}
+		} finally {
+			reader.close();
+			in.close();
+		}
+	}
+
+	/**
+	 * Split a line on ';', keeping empty cells.
+	 */
+	private static List<String> split(String line) {
+		List<String> cells = new ArrayList<String>();
+		int start = 0;
+		for (int end = line.indexOf(';'); end >= 0; end = line.indexOf(';', start)) {
+			cells.add(line.substring(start, end));
+			start = end + 1;
+		}
+		cells.add(line.substring(start));
+		return cells;
+	}
+
+	private static String cell(List<String> cells, int column) {
+		return column >= 0 && column < cells.size() ? cells.get(column) : "";
+	}
+
+	private static double number(List<String> cells, int column) {
+		return parse(cell(cells, column));
+	}
+
+	private static double parse(String text) {
+		if (text == null || text.isEmpty()) {
+			return Double.NaN;
+		}
+		try {
+			return Double.parseDouble(text);
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * @return agent name without the instance number Genius appends after '@'
+	 */
+	private static String agentName(String agent) {
+		if (agent == null) {
+			return "";
+		}
+		int at = agent.lastIndexOf('@');
+		return at < 0 ? agent : agent.substring(0, at);
+	}
+
+	/**
+	 * Statistics of every agent and every profile.
+	 */
+	public static class Aggregate {
+
+		private final Map<String, Stats> agents = new TreeMap<String, Stats>();
+		private final Map<String, Stats> profiles = new TreeMap<String, Stats>();
+
+		/**
+		 * Add the result of one agent in one session.
+		 */
+		public void add(String agent, String profile, double utility, boolean agreed, double pareto, double nash, double welfare, double runtime) {
+			get(agents, agent).add(utility, agreed, pareto, nash, welfare, runtime);
+			get(profiles, profile).add(utility, agreed, pareto, nash, welfare, runtime);
+		}
+
+		public void merge(Aggregate other) {
+			for (Map.Entry<String, Stats> entry : other.agents.entrySet()) {
+				get(agents, entry.getKey()).merge(entry.getValue());
+			}
+			for (Map.Entry<String, Stats> entry : other.profiles.entrySet()) {
+				get(profiles, entry.getKey()).merge(entry.getValue());
+			}
+		}
+
+		/**
+		 * @return statistics of the agent, null if it played no session
+		 */
+		public Stats getAgent(String agent) {
+			return agents.get(agent);
+		}
+
+		public void print() {
+			for (Map.Entry<String, Stats> entry : agents.entrySet()) {
+				System.out.println("agent;" + entry.getKey() + ";" + entry.getValue());
+			}
+			for (Map.Entry<String, Stats> entry : profiles.entrySet()) {
+				System.out.println("profile;" + entry.getKey() + ";" + entry.getValue());
+			}
+		}
+
+		private static Stats get(Map<String, Stats> map, String key) {
+			Stats stats = map.get(key);
+			if (stats == null) {
+				stats = new Stats();
+				map.put(key, stats);
+			}
+			return stats;
+		}
+	}
+
+	/**
+	 * Running sums of the results of one agent or profile. Values that are missing from a log are not counted in their mean.
+	 */
+	public static class Stats {
+
+		// Number of bins of the utility histogram
+		private static final int BINS = 1000;
+
+		private long sessions, agreements;
+		private final long[] histogram = new long[BINS + 1];
+		// Sum and number of values of utility, distance to Pareto, distance to Nash, social welfare and run time
+		private final double[] sums = new double[5];
+		private final long[] counts = new long[5];
+
+		public void add(double utility, boolean agreed, double pareto, double nash, double welfare, double runtime) {
+			sessions++;
+			if (agreed) {
+				agreements++;
+			}
+			if (!Double.isNaN(utility)) {
+				histogram[(int) Math.round(Math.min(1, Math.max(0, utility)) * BINS)]++;
+			}
+			double[] values = { utility, pareto, nash, welfare, runtime };
+			for (int i = 0; i < values.length; i++) {
+				if (!Double.isNaN(values[i])) {
+					sums[i] += values[i];
+					counts[i]++;
+				}
+			}
+		}
+
+		public void merge(Stats other) {
+			sessions += other.sessions;
+			agreements += other.agreements;
+			for (int b = 0; b <= BINS; b++) {
+				histogram[b] += other.histogram[b];
+			}
+			for (int i = 0; i < sums.length; i++) {
+				sums[i] += other.sums[i];
+				counts[i] += other.counts[i];
+			}
+		}
+
+		/**
+		 * @return utility below which the given fraction of the utilities lies, to a precision of 1 / 1000
+		 */
+		public double getPercentile(double fraction) {
+			long total = counts[0];
+			if (total == 0) {
+				return Double.NaN;
+			}
+			long rank = (long) Math.ceil(fraction * total);
+			long seen = 0;
+			for (int b = 0; b <= BINS; b++) {
+				seen += histogram[b];
+				if (seen >= Math.max(rank, 1)) {
+					return b / (double) BINS;
+				}
+			}
+			return 1;
+		}
+
+		public long getSessions() {
+			return sessions;
+		}
+
+		public double getAgreementRate() {
+			return sessions == 0 ? Double.NaN : agreements / (double) sessions;
+		}
+
+		public double getMeanUtility() {
+			return mean(0);
+		}
+
+		/**
+		 * @return mean run time of a session in seconds
+		 */
+		public double getMeanRuntime() {
+			return mean(4);
+		}
+
+		private double mean(int i) {
+			return counts[i] == 0 ? Double.NaN : sums[i] / counts[i];
+		}
+
+		@Override
+		public String toString() {
+			return sessions + ";" + String.format("%.5f;%.5f;%.3f;%.3f;%.3f;%.5f;%.5f;%.5f;%.3f", agreements / (double) sessions, mean(0),
+					getPercentile(0.1), getPercentile(0.5), getPercentile(0.9), mean(1), mean(2), mean(3), mean(4));
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package group13.tools;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Search of the BOA parameters of agent NiceHardHeaded of group 13 of Multi-Agent Systems project, without a recompile per trial.
+ * Every configuration plays the same headless tournament of {@link TournamentRunner}, with the same opponents, domains and seed.
+ * Configurations run one after the other, each playing its sessions on all worker threads, so every configuration
+ * runs under the same load and their run times can be compared. Configurations are ranked by the mean utility of our agent,
+ * and equal utilities by the mean run time of a session. A configuration whose tournament fails is listed last with its error.
+ *
+ * The space gives a list of values per parameter, named like the -params of TournamentRunner.
+ * A grid search plays every combination of the values, a random search with -random n plays n configurations
+ * drawn uniformly between the lowest and highest value of each parameter.
+ *
+ * Usage: ParameterSweep -space "bs.b=0.005:0.01:0.02;as.m1=0.85:0.9" [-random n] [-threads n] [-seed n] [-out prefix] [TournamentRunner options]
+ * Our agent is made of the Group13 components unless -boa is given. The ranking is printed and written to prefix.sweep.csv,
+ * the outcome files of each configuration to prefix-number.log.csv and .log.xml.
+ */
+public class ParameterSweep {
+
+	private static final String DEFAULT_BOA = "group13.Group13_BS,group13.Group13_AS,group13.Group13_OM,group13.Group13_OMS";
+	private static final String HEADER = "rank;configuration;parameters;sessions;agreement rate;mean utility;mean run time (s);error";
+
+	public static void main(String[] args) throws Exception {
+		Map<String, double[]> space = new LinkedHashMap<String, double[]>();
+		int random = 0;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long seed = 0;
+		String out = null;
+		List<String> runnerArgs = new ArrayList<String>();
+		runnerArgs.add("-boa");
+		runnerArgs.add(DEFAULT_BOA);
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			if (args[i].equals("-space")) {
+				for (String parameter : value.split(";")) {
+					int equals = parameter.indexOf('=');
+					String[] values = parameter.substring(equals + 1).split(":");
+					double[] numbers = new double[values.length];
+					for (int v = 0; v < values.length; v++) {
+						numbers[v] = Double.parseDouble(values[v]);
+					}
+					space.put(parameter.substring(0, equals), numbers);
+				}
+			} else if (args[i].equals("-random")) {
+				random = Integer.parseInt(value);
+			} else if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(value);
+			} else if (args[i].equals("-seed")) {
+				seed = Long.parseLong(value);
+			} else if (args[i].equals("-out")) {
+				out = value;
+			} else {
+				runnerArgs.add(args[i]);
+				runnerArgs.add(value);
+			}
+		}
+		if (out == null) {
+			out = "log/sweep-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+		}
+		List<String> configurations = random > 0 ? sample(space, random, new Random(seed)) : grid(space);
+		System.out.println("Sweeping " + configurations.size() + " configurations on " + threads + " threads");
+
+		List<Trial> trials = new ArrayList<Trial>();
+		for (int c = 0; c < configurations.size(); c++) {
+			List<String> trialArgs = new ArrayList<String>(runnerArgs);
+			String[] options = { "-params", configurations.get(c), "-threads", String.valueOf(Math.max(1, threads)), "-seed", String.valueOf(seed),
+					"-out", out + "-" + c };
+			Collections.addAll(trialArgs, options);
+			Trial trial = new Trial(c, configurations.get(c), trialArgs.toArray(new String[trialArgs.size()]));
+			trial.run();
+			trials.add(trial);
+		}
+
+		Collections.sort(trials, new Comparator<Trial>() {
+			@Override
+			public int compare(Trial a, Trial b) {
+				if ((a.error == null) != (b.error == null)) {
+					return a.error == null ? -1 : 1;
+				}
+				int byUtility = Double.compare(b.stats.getMeanUtility(), a.stats.getMeanUtility());
+				return byUtility != 0 ? byUtility : Double.compare(a.stats.getMeanRuntime(), b.stats.getMeanRuntime());
+			}
+		});
+		File file = new File(out + ".sweep.csv");
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		PrintWriter csv = new PrintWriter(file, "UTF-8");
+		try {
+			System.out.println(HEADER);
+			csv.println(HEADER);
+			for (int rank = 0; rank < trials.size(); rank++) {
+				String line = (rank + 1) + ";" + trials.get(rank);
+				System.out.println(line);
+				csv.println(line);
+			}
+		} finally {
+			csv.close();
+		}
+	}
+
+	/**
+	 * @return every combination of the values of the parameters, as -params of TournamentRunner
+	 */
+	static List<String> grid(Map<String, double[]> space) {
+		List<String> configurations = new ArrayList<String>();
+		configurations.add("");
+		for (Map.Entry<String, double[]> parameter : space.entrySet()) {
+			List<String> extended = new ArrayList<String>();
+			for (String configuration : configurations) {
+				for (double value : parameter.getValue()) {
+					extended.add(join(configuration, parameter.getKey(), value));
+				}
+			}
+			configurations = extended;
+		}
+		return configurations;
+	}
+
+	/**
+	 * @return configurations with each parameter drawn uniformly between its lowest and highest value
+	 */
+	static List<String> sample(Map<String, double[]> space, int count, Random random) {
+		List<String> configurations = new ArrayList<String>();
+		for (int c = 0; c < count; c++) {
+			String configuration = "";
+			for (Map.Entry<String, double[]> parameter : space.entrySet()) {
+				double low = Double.POSITIVE_INFINITY, high = Double.NEGATIVE_INFINITY;
+				for (double value : parameter.getValue()) {
+					low = Math.min(low, value);
+					high = Math.max(high, value);
+				}
+				configuration = join(configuration, parameter.getKey(), low + random.nextDouble() * (high - low));
+			}
+			configurations.add(configuration);
+		}
+		return configurations;
+	}
+
+	private static String join(String configuration, String name, double value) {
+		return (configuration.isEmpty() ? "" : configuration + ",") + name + "=" + value;
+	}
+
+	/**
+	 * Tournament of one configuration and the statistics of our agent in it.
+	 */
+	private static class Trial {
+
+		private final int number;
+		private final String configuration;
+		private final String[] args;
+		private LogAnalyzer.Stats stats = new LogAnalyzer.Stats();
+		// Error which stopped the tournament, null if it was played
+		private String error;
+
+		private Trial(int number, String configuration, String[] args) {
+			this.number = number;
+			this.configuration = configuration;
+			this.args = args;
+		}
+
+		/**
+		 * Play the tournament and read the statistics of our agent, or keep the error if it fails.
+		 */
+		private void run() {
+			try {
+				TournamentRunner runner = TournamentRunner.parse(args);
+				runner.run();
+				LogAnalyzer.Aggregate aggregate = LogAnalyzer.analyze(Collections.singletonList(new File(runner.getOut() + ".log.csv")), 1);
+				LogAnalyzer.Stats agent = aggregate.getAgent(runner.getAgentName());
+				if (agent == null) {
+					error = "no session of " + runner.getAgentName() + " in the log";
+				} else {
+					stats = agent;
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+				error = e.toString();
+			}
+			if (error != null) {
+				System.out.println("Configuration " + number + " (" + configuration + ") failed: " + error);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return number + ";" + configuration + ";" + stats.getSessions() + ";"
+					+ String.format("%.5f;%.5f;%.3f", stats.getAgreementRate(), stats.getMeanUtility(), stats.getMeanRuntime()) + ";"
+					+ (error == null ? "" : error.replace(';', ','));
+		}
+	}
+}
@@ -0,0 +1,723 @@
+package group13.tools;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.BidIterator;
+import genius.core.Deadline;
+import genius.core.DeadlineType;
+import genius.core.Domain;
+import genius.core.DomainImpl;
+import genius.core.actions.Accept;
+import genius.core.actions.Action;
+import genius.core.actions.EndNegotiation;
+import genius.core.actions.Offer;
+import genius.core.boaframework.AcceptanceStrategy;
+import genius.core.boaframework.BoaParty;
+import genius.core.boaframework.OMStrategy;
+import genius.core.boaframework.OfferingStrategy;
+import genius.core.boaframework.OpponentModel;
+import genius.core.parties.AbstractNegotiationParty;
+import genius.core.parties.NegotiationInfo;
+import genius.core.parties.NegotiationParty;
+import genius.core.timeline.DiscreteTimeline;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+
+/**
+ * Headless tournament runner for agent NiceHardHeaded of group 13 of Multi-Agent Systems project.
+ * Reads the repository files of Genius, plays our agent against every selected opponent of partyrepository.xml
+ * on every ordered pair of profiles of every selected domain of domainrepository.xml, and writes the same
+ * .log.csv and .log.xml outcome files as a tournament run from the Genius GUI.
+ * Sessions are independent, so they run on a fixed pool of worker threads, and each session gets a seed derived from
+ * the base seed and its position in the tournament, so a run with the same arguments plays the same sessions.
+ * Results are written in the order of the sessions, whatever order they finish in.
+ * Every ordered pair of profiles is played, so our agent plays both sides of each pair of profiles.
+ * Which party starts alternates between repeats, and the first repeat of the two orders of a pair has different starters,
+ * so that even a single repeat has our agent start half of the sessions.
+ * A session that fails is written with its exception, like a session Genius could not finish.
+ *
+ * Sessions follow the stacked alternating offers protocol for two parties with a deadline in rounds.
+ * Agents that keep state in static fields share it between sessions running at the same time, so run them with -threads 1.
+ *
+ * Usage: TournamentRunner [-root dir] [-agent class | -boa bs,as,om,oms [-params bs.name=value,...]] [-opponents regex] [-domains regex]
+ *        [-rounds n] [-repeats n] [-threads n] [-seed n] [-out prefix]
+ * Components of -boa are descriptions or class paths from boarepository.xml, or class names.
+ * Parameters of -params are given to the component named by their prefix, bs, as, om or oms, like in boapartyrepo.xml.
+ */
+public class TournamentRunner {
+
+	// Opponents of partyrepository.xml that need a person at the screen are left out by default
+	private static final String DEFAULT_OPPONENTS = "^(?!.*(UIAgent|Human)).*$";
+	// Largest domain for which the Pareto frontier and Nash point are computed
+	private static final long MAX_ANALYSED_OUTCOMES = 1000000;
+	private static final String CSV_HEADER = "Run time (s);Round;Exception;deadline;Agreement;Discounted;#agreeing;min.util.;max.util.;"
+			+ "Dist. to Pareto;Dist. to Nash;Social Welfare;Agent 1;Agent 2;Utility 1;Utility 2;Disc. Util. 1;Disc. Util. 2;"
+			+ "Perceived. Util. 1;Perceived. Util. 2;Profile 1;Profile 2";
+
+	// Directory of Genius, which the paths in the repository files are relative to
+	private File root = new File(".");
+	private String agent = "group13.Group13_NiceHardHead";
+	private String[] boa;
+	// Parameters of the bidding strategy, acceptance strategy, opponent model and opponent model strategy
+	private final List<Map<String, Double>> parameters = new ArrayList<Map<String, Double>>();
+	private String opponents = DEFAULT_OPPONENTS;
+	private String domains = ".*";
+	private int rounds = 60;
+	private int repeats = 1;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private long seed = 0;
+	private String out;
+
+	public static void main(String[] args) throws Exception {
+		parse(args).run();
+	}
+
+	/**
+	 * @return runner with the options of the command line
+	 */
+	static TournamentRunner parse(String[] args) {
+		TournamentRunner runner = new TournamentRunner();
+		for (int c = 0; c < 4; c++) {
+			runner.parameters.add(new HashMap<String, Double>());
+		}
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			if (args[i].equals("-root")) {
+				runner.root = new File(value);
+			} else if (args[i].equals("-agent")) {
+				runner.agent = value;
+			} else if (args[i].equals("-boa")) {
+				runner.boa = value.split(",");
+			} else if (args[i].equals("-params")) {
+				runner.parseParameters(value);
+			} else if (args[i].equals("-opponents")) {
+				runner.opponents = value;
+			} else if (args[i].equals("-domains")) {
+				runner.domains = value;
+			} else if (args[i].equals("-rounds")) {
+				runner.rounds = Integer.parseInt(value);
+			} else if (args[i].equals("-repeats")) {
+				runner.repeats = Integer.parseInt(value);
+			} else if (args[i].equals("-threads")) {
+				runner.threads = Integer.parseInt(value);
+			} else if (args[i].equals("-seed")) {
+				runner.seed = Long.parseLong(value);
+			} else if (args[i].equals("-out")) {
+				runner.out = value;
+			} else {
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+		if (runner.out == null) {
+			runner.out = new File(runner.root, "log/tournament-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + "-headless").getPath();
+		}
+		return runner;
+	}
+
+	/**
+	 * Add parameters like bs.b=0.02,as.m1=0.95 to the maps of their components.
+	 */
+	private void parseParameters(String value) {
+		List<String> prefixes = Arrays.asList("bs", "as", "om", "oms");
+		for (String assignment : value.split(",")) {
+			if (assignment.isEmpty()) {
+				continue;
+			}
+			int dot = assignment.indexOf('.'), equals = assignment.indexOf('=');
+			int component = dot < 0 ? -1 : prefixes.indexOf(assignment.substring(0, dot));
+			if (component < 0 || equals < dot) {
+				throw new IllegalArgumentException("Parameter " + assignment + " is not like bs.name=value");
+			}
+			parameters.get(component).put(assignment.substring(dot + 1, equals), Double.parseDouble(assignment.substring(equals + 1)));
+		}
+	}
+
+	/**
+	 * @return file prefix of the outcome files
+	 */
+	String getOut() {
+		return out;
+	}
+
+	/**
+	 * @return name of our agent in the outcome files, without the instance number
+	 */
+	String getAgentName() throws Exception {
+		return idPrefix(boa == null ? agent : BoaPartyFactory.getClassName(resolveBoa(boa)));
+	}
+
+	/**
+	 * Play all sessions and write the outcome files.
+	 */
+	public void run() throws Exception {
+		PartyFactory ourAgent = boa == null ? new ClassPartyFactory(agent) : new BoaPartyFactory(resolveBoa(boa), parameters);
+		List<PartyFactory> opponentFactories = new ArrayList<PartyFactory>();
+		for (String className : readPartyRepository()) {
+			if (Pattern.matches(opponents, className)) {
+				opponentFactories.add(new ClassPartyFactory(className));
+			}
+		}
+		Map<String, List<String>> domainProfiles = readDomainRepository();
+
+		// One analysis per ordered pair of profiles, one session per pair, opponent and repeat
+		List<Analysis> analyses = new ArrayList<Analysis>();
+		List<Session> sessions = new ArrayList<Session>();
+		for (Map.Entry<String, List<String>> domain : domainProfiles.entrySet()) {
+			if (!Pattern.matches(domains, domain.getKey())) {
+				continue;
+			}
+			List<String> profiles = domain.getValue();
+			Analysis[][] pairs = new Analysis[profiles.size()][profiles.size()];
+			for (int first = 0; first < profiles.size(); first++) {
+				for (int second = 0; second < profiles.size(); second++) {
+					if (first != second) {
+						pairs[first][second] = new Analysis(domain.getKey(), profiles.get(first), profiles.get(second));
+						analyses.add(pairs[first][second]);
+					}
+				}
+			}
+			for (int first = 0; first < profiles.size(); first++) {
+				for (int second = 0; second < profiles.size(); second++) {
+					if (first == second) {
+						continue;
+					}
+					for (PartyFactory opponent : opponentFactories) {
+						for (int repeat = 0; repeat < repeats; repeat++) {
+							// Our agent has the first profile, and starts on alternate repeats, 
+							// on even ones if the first profile comes first in the domain and on odd ones otherwise
+							if ((repeat + (first < second ? 0 : 1)) % 2 == 0) {
+								sessions.add(new Session(sessions.size(), pairs[first][second], ourAgent, opponent));
+							} else {
+								sessions.add(new Session(sessions.size(), pairs[second][first], opponent, ourAgent));
+							}
+						}
+					}
+				}
+			}
+		}
+		System.out.println("Playing " + sessions.size() + " sessions on " + threads + " threads");
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			runAll(pool, analyses);
+			List<Future<Result>> results = runAll(pool, sessions);
+			write(sessions, results);
+		} finally {
+			pool.shutdown();
+		}
+		System.out.println("Wrote " + out + ".log.csv and " + out + ".log.xml");
+	}
+
+	/**
+	 * Submit all tasks and wait until they are all done.
+	 *
+	 * @return futures of the tasks, in the order of the tasks
+	 */
+	private static <T> List<Future<T>> runAll(ExecutorService pool, List<? extends Callable<T>> tasks) throws InterruptedException {
+		List<Future<T>> futures = new ArrayList<Future<T>>();
+		for (Callable<T> task : tasks) {
+			futures.add(pool.submit(task));
+		}
+		for (Future<T> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+			}
+		}
+		return futures;
+	}
+
+	/**
+	 * @return class path of every party in partyrepository.xml
+	 */
+	private List<String> readPartyRepository() throws Exception {
+		List<String> parties = new ArrayList<String>();
+		NodeList items = parse("partyrepository.xml").getElementsByTagName("partyRepItem");
+		for (int i = 0; i < items.getLength(); i++) {
+			parties.add(((Element) items.item(i)).getAttribute("classPath"));
+		}
+		return parties;
+	}
+
+	/**
+	 * @return path of every domain in domainrepository.xml with the paths of its profiles
+	 */
+	private Map<String, List<String>> readDomainRepository() throws Exception {
+		Map<String, List<String>> domainProfiles = new LinkedHashMap<String, List<String>>();
+		NodeList items = parse("domainrepository.xml").getElementsByTagName("domainRepItem");
+		for (int i = 0; i < items.getLength(); i++) {
+			Element item = (Element) items.item(i);
+			if (!item.hasAttribute("url")) {
+				continue;
+			}
+			List<String> profiles = new ArrayList<String>();
+			NodeList profileItems = item.getElementsByTagName("profile");
+			for (int p = 0; p < profileItems.getLength(); p++) {
+				profiles.add(toPath(((Element) profileItems.item(p)).getAttribute("url")));
+			}
+			domainProfiles.put(toPath(item.getAttribute("url")), profiles);
+		}
+		return domainProfiles;
+	}
+
+	/**
+	 * Look up each component in boarepository.xml by description or class path. A component which is not found is taken as a class name.
+	 *
+	 * @return class names of the bidding strategy, acceptance strategy, opponent model and opponent model strategy
+	 */
+	private String[] resolveBoa(String[] components) throws Exception {
+		if (components.length != 4) {
+			throw new IllegalArgumentException("-boa needs four components: bs,as,om,oms");
+		}
+		String[] tags = { "biddingstrategy", "acceptancecondition", "opponentmodel", "omstrategy" };
+		Document repository = parse("boarepository.xml");
+		String[] classNames = new String[4];
+		for (int c = 0; c < 4; c++) {
+			classNames[c] = components[c];
+			NodeList items = repository.getElementsByTagName(tags[c]);
+			for (int i = 0; i < items.getLength(); i++) {
+				Element item = (Element) items.item(i);
+				if (components[c].equals(item.getAttribute("description")) || components[c].equals(item.getAttribute("classpath"))) {
+					classNames[c] = item.getAttribute("classpath");
+					break;
+				}
+			}
+		}
+		return classNames;
+	}
+
+	private Document parse(String repository) throws Exception {
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(root, repository));
+	}
+
+	/**
+	 * @return file path of a repository url, relative to the Genius directory
+	 */
+	private String toPath(String url) {
+		String path = url.startsWith("file:") ? url.substring("file:".length()) : url;
+		return new File(path).isAbsolute() ? path : new File(root, path).getPath();
+	}
+
+	/**
+	 * Write the results in the format of the Genius tournament logs, in the order of the sessions.
+	 * A session that failed is written with its exception and without an agreement.
+	 */
+	private void write(List<Session> sessions, List<Future<Result>> results) throws Exception {
+		File csvFile = new File(out + ".log.csv");
+		if (csvFile.getParentFile() != null) {
+			csvFile.getParentFile().mkdirs();
+		}
+		PrintWriter csv = new PrintWriter(csvFile, "UTF-8");
+		PrintWriter xml = new PrintWriter(new File(out + ".log.xml"), "UTF-8");
+		try {
+			csv.println("sep=;");
+			csv.println(CSV_HEADER);
+			xml.println("<?xml version=\"1.0\" ?><Tournament>");
+			for (int s = 0; s < results.size(); s++) {
+				Result result;
+				try {
+					result = results.get(s).get();
+				} catch (ExecutionException e) {
+					result = sessions.get(s).failed(e.getCause());
+				}
+				csv.println(result.toCsv());
+				xml.print(result.toXml());
+			}
+			xml.println("</Tournament>");
+		} finally {
+			csv.close();
+			xml.close();
+		}
+	}
+
+	private static String name(File file) {
+		return file.getName();
+	}
+
+	/**
+	 * @return agent name of a party class, to which the instance number is appended
+	 */
+	private static String idPrefix(String className) {
+		return className.substring(className.lastIndexOf('.') + 1);
+	}
+
+	private static String format(double value) {
+		return String.format("%.5f", value);
+	}
+
+	private static String escape(String text) {
+		return text.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;").replace(">", "&gt;");
+	}
+
+	/**
+	 * Creates a fresh party for every session, so no party is shared between threads.
+	 */
+	interface PartyFactory {
+		NegotiationParty create() throws Exception;
+
+		String getClassName();
+	}
+
+	private static class ClassPartyFactory implements PartyFactory {
+
+		private final String className;
+
+		private ClassPartyFactory(String className) {
+			this.className = className;
+		}
+
+		@Override
+		public NegotiationParty create() throws Exception {
+			return (NegotiationParty) Class.forName(className).getDeclaredConstructor().newInstance();
+		}
+
+		@Override
+		public String getClassName() {
+			return className;
+		}
+	}
+
+	private static class BoaPartyFactory implements PartyFactory {
+
+		// Class names of the bidding strategy, acceptance strategy, opponent model and opponent model strategy
+		private final String[] classNames;
+		// Parameters of each component
+		private final List<Map<String, Double>> parameters;
+
+		private BoaPartyFactory(String[] classNames, List<Map<String, Double>> parameters) {
+			this.classNames = classNames;
+			this.parameters = parameters;
+		}
+
+		@Override
+		public NegotiationParty create() throws Exception {
+			Object[] components = new Object[4];
+			for (int c = 0; c < 4; c++) {
+				components[c] = Class.forName(classNames[c]).getDeclaredConstructor().newInstance();
+			}
+			return new BoaCombination((OfferingStrategy) components[0], (AcceptanceStrategy) components[1],
+					(OpponentModel) components[2], (OMStrategy) components[3], parameters, getClassName());
+		}
+
+		@Override
+		public String getClassName() {
+			return getClassName(classNames);
+		}
+
+		private static String getClassName(String[] classNames) {
+			return "boa-" + classNames[0] + "-" + classNames[1] + "-" + classNames[2] + "-" + classNames[3];
+		}
+	}
+
+	/**
+	 * BOA party made of components given on the command line.
+	 */
+	@SuppressWarnings("serial")
+	private static class BoaCombination extends BoaParty {
+
+		private final String description;
+
+		private BoaCombination(OfferingStrategy os, AcceptanceStrategy ac, OpponentModel om, OMStrategy oms, List<Map<String, Double>> parameters,
+				String description) {
+			configure(ac, parameters.get(1), os, parameters.get(0), om, parameters.get(2), oms, parameters.get(3));
+			this.description = description;
+		}
+
+		@Override
+		public String getDescription() {
+			return description;
+		}
+	}
+
+	/**
+	 * Pareto frontier and Nash point of a pair of profiles, computed once and shared by all sessions on the pair.
+	 * The Nash point maximizes the product of the utilities.
+	 */
+	private static class Analysis implements Callable<Analysis> {
+
+		private final String domain, firstProfile, secondProfile;
+		// Utilities of the Pareto optimal bids, ascending by utility of the first profile
+		private double[][] pareto;
+		private double nashFirst, nashSecond;
+
+		private Analysis(String domain, String firstProfile, String secondProfile) {
+			this.domain = domain;
+			this.firstProfile = firstProfile;
+			this.secondProfile = secondProfile;
+		}
+
+		@Override
+		public Analysis call() throws Exception {
+			Domain loaded = new DomainImpl(domain);
+			if (loaded.getNumberOfPossibleBids() > MAX_ANALYSED_OUTCOMES) {
+				return this;
+			}
+			AbstractUtilitySpace first = new AdditiveUtilitySpace(loaded, firstProfile);
+			AbstractUtilitySpace second = new AdditiveUtilitySpace(loaded, secondProfile);
+			List<double[]> points = new ArrayList<double[]>();
+			for (BidIterator bids = new BidIterator(loaded); bids.hasNext();) {
+				Bid bid = bids.next();
+				points.add(new double[] { first.getUtility(bid), second.getUtility(bid) });
+			}
+			// Sort descending by the first utility, then keep each point better for the second than all before it
+			Collections.sort(points, new Comparator<double[]>() {
+				@Override
+				public int compare(double[] a, double[] b) {
+					return a[0] != b[0] ? Double.compare(b[0], a[0]) : Double.compare(b[1], a[1]);
+				}
+			});
+			List<double[]> frontier = new ArrayList<double[]>();
+			double best = Double.NEGATIVE_INFINITY;
+			double nash = Double.NEGATIVE_INFINITY;
+			for (double[] point : points) {
+				if (point[1] > best) {
+					best = point[1];
+					frontier.add(point);
+					if (point[0] * point[1] > nash) {
+						nash = point[0] * point[1];
+						nashFirst = point[0];
+						nashSecond = point[1];
+					}
+				}
+			}
+			pareto = frontier.toArray(new double[frontier.size()][]);
+			return this;
+		}
+
+		/**
+		 * @return distance from the utilities to the nearest Pareto optimal bid, or NaN if the domain was too large
+		 */
+		private double distanceToPareto(double firstUtility, double secondUtility) {
+			if (pareto == null) {
+				return Double.NaN;
+			}
+			double nearest = Double.POSITIVE_INFINITY;
+			for (double[] point : pareto) {
+				nearest = Math.min(nearest, Math.hypot(point[0] - firstUtility, point[1] - secondUtility));
+			}
+			return nearest;
+		}
+
+		/**
+		 * @return distance from the utilities to the Nash point, or NaN if the domain was too large
+		 */
+		private double distanceToNash(double firstUtility, double secondUtility) {
+			return pareto == null ? Double.NaN : Math.hypot(nashFirst - firstUtility, nashSecond - secondUtility);
+		}
+	}
+
+	/**
+	 * One bilateral session, the first party on the first profile of the analysis and starting, the second party on the second profile.
+	 */
+	private class Session implements Callable<Result> {
+
+		private final int number;
+		private final Analysis analysis;
+		private final PartyFactory first, second;
+
+		private Session(int number, Analysis analysis, PartyFactory first, PartyFactory second) {
+			this.number = number;
+			this.analysis = analysis;
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		public Result call() throws Exception {
+			Result result = new Result(analysis);
+			Domain domain = new DomainImpl(analysis.domain);
+			AbstractUtilitySpace[] spaces = { new AdditiveUtilitySpace(domain, analysis.firstProfile), new AdditiveUtilitySpace(domain, analysis.secondProfile) };
+			PartyFactory[] factories = { first, second };
+			NegotiationParty[] parties = new NegotiationParty[2];
+			AgentID[] ids = new AgentID[2];
+			DiscreteTimeline timeline = new DiscreteTimeline(rounds);
+			// Seed of the session, spread so that neighbouring sessions get unrelated seeds
+			long sessionSeed = seed + number * 0x9E3779B97F4A7C15L;
+			long start = System.nanoTime();
+			Bid lastBid = null;
+			Action lastAction = null;
+			int round = 1;
+			try {
+				for (int p = 0; p < 2; p++) {
+					parties[p] = factories[p].create();
+					String className = factories[p].getClassName();
+					ids[p] = new AgentID(idPrefix(className) + "@" + (2 * number + p));
+					parties[p].init(new NegotiationInfo(spaces[p], null, null, new Deadline(rounds, DeadlineType.ROUND), timeline,
+							sessionSeed + p, ids[p], null));
+				}
+				List<Class<? extends Action>> opening = Arrays.<Class<? extends Action>>asList(Offer.class, EndNegotiation.class);
+				List<Class<? extends Action>> answers = Arrays.<Class<? extends Action>>asList(Accept.class, Offer.class, EndNegotiation.class);
+				negotiation:
+				for (; round <= rounds; round++) {
+					for (int p = 0; p < 2; p++) {
+						Action action = parties[p].chooseAction(lastBid == null ? opening : answers);
+						lastAction = action;
+						parties[1 - p].receiveMessage(ids[p], action);
+						if (action instanceof Offer && ((Offer) action).getBid() != null) {
+							lastBid = ((Offer) action).getBid();
+							result.bids++;
+						} else if (action instanceof Accept && lastBid != null) {
+							result.agreement = lastBid;
+							break negotiation;
+						} else if (action instanceof EndNegotiation) {
+							break negotiation;
+						} else {
+							throw new IllegalStateException(ids[p].getName() + " did an invalid action: " + action);
+						}
+					}
+					timeline.increment();
+				}
+			} catch (Exception e) {
+				result.exception = e.toString();
+			}
+			for (int p = 0; p < 2; p++) {
+				try {
+					if (parties[p] != null) {
+						parties[p].negotiationEnded(result.agreement);
+					}
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+			result.runtime = (System.nanoTime() - start) / 1e9;
+			// A session that runs to the deadline leaves the loop with the round after the last one
+			result.round = Math.min(round, rounds);
+			result.time = timeline.getTime();
+			result.lastAction = lastAction == null ? "" : lastAction.toString();
+			result.deadline = rounds + "rounds";
+			for (int p = 0; p < 2; p++) {
+				AbstractUtilitySpace space = spaces[p];
+				result.agents[p] = ids[p] == null ? factories[p].getClassName() : ids[p].getName();
+				result.agentClasses[p] = factories[p].getClassName();
+				result.descriptions[p] = parties[p] == null ? "" : String.valueOf(parties[p].getDescription());
+				result.discounts[p] = space.getDiscountFactor();
+				if (result.agreement != null) {
+					result.utilities[p] = space.getUtility(result.agreement);
+					result.discounted[p] = space.getUtilityWithDiscount(result.agreement, result.time);
+					if (parties[p] instanceof AbstractNegotiationParty && ((AbstractNegotiationParty) parties[p]).getUtilitySpace() != null) {
+						result.perceived[p] = ((AbstractNegotiationParty) parties[p]).getUtilitySpace().getUtility(result.agreement);
+					}
+				} else {
+					double reservation = space.getReservationValueUndiscounted();
+					result.utilities[p] = reservation;
+					result.discounted[p] = space.discount(reservation, result.time);
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * @return result of the session if it failed outside the negotiation, like when a profile cannot be read
+		 */
+		private Result failed(Throwable cause) {
+			Result result = new Result(analysis);
+			result.exception = String.valueOf(cause);
+			result.deadline = rounds + "rounds";
+			PartyFactory[] factories = { first, second };
+			for (int p = 0; p < 2; p++) {
+				result.agents[p] = factories[p].getClassName();
+				result.agentClasses[p] = factories[p].getClassName();
+				result.descriptions[p] = "";
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Outcome of one session, with the columns of the Genius tournament logs.
+	 */
+	private static class Result {
+
+		private final Analysis analysis;
+		private double runtime, time;
+		private int round, bids;
+		private String exception = "", lastAction = "", deadline = "";
+		private Bid agreement;
+		private final String[] agents = new String[2], agentClasses = new String[2], descriptions = new String[2];
+		private final double[] utilities = new double[2], discounted = new double[2], perceived = new double[2], discounts = new double[2];
+
+		private Result(Analysis analysis) {
+			this.analysis = analysis;
+		}
+
+		private boolean isDiscounted() {
+			for (double discount : discounts) {
+				if (discount > 0 && discount < 1) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private String toCsv() {
+			StringBuilder line = new StringBuilder();
+			line.append(String.format("%.3f", runtime)).append(';').append(round).append(';').append(exception.replace(';', ',')).append(';');
+			line.append(deadline).append(';').append(agreement != null ? "Yes" : "No").append(';').append(isDiscounted() ? "Yes" : "No").append(';');
+			line.append(agreement != null ? 2 : 1).append(';');
+			line.append(format(Math.min(utilities[0], utilities[1]))).append(';').append(format(Math.max(utilities[0], utilities[1]))).append(';');
+			line.append(format(analysis.distanceToPareto(utilities[0], utilities[1]))).append(';');
+			line.append(format(analysis.distanceToNash(utilities[0], utilities[1]))).append(';');
+			line.append(format(utilities[0] + utilities[1])).append(';');
+			line.append(agents[0]).append(';').append(agents[1]).append(';');
+			line.append(utilities[0]).append(';').append(utilities[1]).append(';');
+			line.append(discounted[0]).append(';').append(discounted[1]).append(';');
+			line.append(perceived[0]).append(';').append(perceived[1]).append(';');
+			line.append(name(new File(analysis.firstProfile))).append(';').append(name(new File(analysis.secondProfile)));
+			return line.toString();
+		}
+
+		private String toXml() {
+			StringBuilder xml = new StringBuilder();
+			xml.append("<NegotiationOutcome currentTime=\"").append(escape(new Date().toString()));
+			if (agreement != null) {
+				xml.append("\" timeOfAgreement=\"").append(time);
+			}
+			xml.append("\" lastAction=\"").append(escape(lastAction))
+					.append("\" domain=\"").append(escape(analysis.domain))
+					.append("\" bids=\"").append(bids)
+					.append("\" runtime=\"").append(runtime)
+					.append("\" finalOutcome=\"").append(agreement == null ? "-" : escape(agreement.toString()))
+					.append("\" startingAgent=\"").append(escape(agents[0]))
+					.append("\" deadline=\"").append(deadline).append("\">\n");
+			String[] profiles = { analysis.firstProfile, analysis.secondProfile };
+			for (int p = 0; p < 2; p++) {
+				xml.append("<resultsOfAgent agent=\"").append(escape(agents[p]))
+						.append("\" agentDesc=\"").append(escape(descriptions[p]))
+						.append("\" utilspace=\"").append(escape(profiles[p]))
+						.append("\" agentClass=\"").append(escape(agentClasses[p]))
+						.append("\" finalUtility=\"").append(utilities[p])
+						.append("\" discountedUtility=\"").append(discounted[p])
+						.append("\" discount=\"").append(discounts[p]).append("\">\n")
+						.append("</resultsOfAgent>\n");
+			}
+			xml.append("</NegotiationOutcome>\n");
+			return xml.toString();
+		}
+	}
+}